@@ -56,7 +56,7 @@ public class Company {
     }
 
     /**
-     * Returns a List of the Coupons the Company has.
+     * Returns a List of the Coupons the Company has. Read from MySQL database it is a LazyList, loaded on first access.
      *
      * @return Company List of Coupons
      */
@@ -129,6 +129,7 @@ public class Company {
 
     /**
      * Method to compare an Object value to Company value.
+     * Coupons are left out, as comparing them could load them from MySQL database.
      *
      * @param o Generic Object
      * @return True -> Objects are equal, else False
@@ -138,17 +139,18 @@ public class Company {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Company company = (Company) o;
-        return id == company.id && Objects.equals(name, company.name) && Objects.equals(email, company.email) && Objects.equals(password, company.password) && Objects.equals(coupons, company.coupons);
+        return id == company.id && Objects.equals(name, company.name) && Objects.equals(email, company.email) && Objects.equals(password, company.password);
     }
 
     /**
      * Generates a distinct hashCode for Company.
+     * Coupons are left out, matching equals.
      *
      * @return hashCode for Company
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, email, password, coupons);
+        return Objects.hash(id, name, email, password);
     }
 
     /**
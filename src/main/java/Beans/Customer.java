@@ -60,7 +60,7 @@ public class Customer {
     }
 
     /**
-     * Returns Customer Coupon list
+     * Returns Customer Coupon list. Read from MySQL database it is a LazyList, loaded on first access.
      *
      * @return Customer Coupon list
      */
@@ -151,6 +151,7 @@ public class Customer {
 
     /**
      * Method to compare an Object value to Customer value.
+     * Coupons are left out, as comparing them could load them from MySQL database.
      *
      * @param o Generic Object
      * @return True -> Objects are equal, else False
@@ -160,17 +161,18 @@ public class Customer {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Customer customer = (Customer) o;
-        return id == customer.id && Objects.equals(firstName, customer.firstName) && Objects.equals(lastName, customer.lastName) && Objects.equals(email, customer.email) && Objects.equals(password, customer.password) && Objects.equals(coupons, customer.coupons);
+        return id == customer.id && Objects.equals(firstName, customer.firstName) && Objects.equals(lastName, customer.lastName) && Objects.equals(email, customer.email) && Objects.equals(password, customer.password);
     }
 
     /**
      * Generates a distinct hashCode for Customer.
+     * Coupons are left out, matching equals.
      *
      * @return hashCode for Customer
      */
     @Override
     public int hashCode() {
-        return Objects.hash(id, firstName, lastName, email, password, coupons);
+        return Objects.hash(id, firstName, lastName, email, password);
     }
 
     /**
@@ -0,0 +1,134 @@
+package Beans;
+
+import Exceptions.LazyLoadException;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+
+/**
+ * List whose elements are loaded on first access, e.g. the Coupons of a Company or Customer read from MySQL database.
+ * Loads at most once, also when first accessed by several threads at the same time. After loading it behaves like the
+ * loaded List, including its support for changes.
+ *
+ * @param <T> Element type
+ */
+public final class LazyList<T> extends AbstractList<T> implements RandomAccess {
+    private final Object lock = new Object();
+    private Callable<List<T>> loader;
+    private volatile List<T> loaded;
+
+    /**
+     * Constructs a LazyList that is not loaded yet.
+     *
+     * @param loader Loader run on first access, returning the elements
+     */
+    public LazyList(Callable<List<T>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Checks whether the elements were loaded already.
+     *
+     * @return true -> loaded, false -> the next access will run the loader
+     */
+    public boolean isLoaded() {
+        return loaded != null;
+    }
+
+    /**
+     * Returns the element at a position, loading the elements first if needed.
+     *
+     * @param index Position of the element
+     * @return Element at the position
+     * @throws LazyLoadException Thrown if loading failed
+     */
+    @Override
+    public T get(int index) {
+        return list().get(index);
+    }
+
+    /**
+     * Returns the number of elements, loading the elements first if needed.
+     *
+     * @return Number of elements
+     * @throws LazyLoadException Thrown if loading failed
+     */
+    @Override
+    public int size() {
+        return list().size();
+    }
+
+    /**
+     * Replaces the element at a position in the loaded List.
+     *
+     * @param index   Position of the element
+     * @param element New element
+     * @return Replaced element
+     */
+    @Override
+    public T set(int index, T element) {
+        return list().set(index, element);
+    }
+
+    /**
+     * Inserts an element at a position in the loaded List.
+     *
+     * @param index   Position to insert at
+     * @param element Element to insert
+     */
+    @Override
+    public void add(int index, T element) {
+        list().add(index, element);
+        modCount++;
+    }
+
+    /**
+     * Removes the element at a position from the loaded List.
+     *
+     * @param index Position of the element
+     * @return Removed element
+     */
+    @Override
+    public T remove(int index) {
+        T removed = list().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Returns String description of the elements, or a placeholder without loading them if they are not loaded yet.
+     *
+     * @return String description of the elements
+     */
+    @Override
+    public String toString() {
+        return isLoaded() ? loaded.toString() : "[not loaded]";
+    }
+
+    /**
+     * Returns the loaded elements, running the loader on first call.
+     *
+     * @return Loaded List
+     * @throws LazyLoadException Thrown if loading failed; the next access tries again
+     */
+    private List<T> list() {
+        List<T> list = loaded;
+        if (list == null) {
+            synchronized (lock) {
+                list = loaded;
+                if (list == null) {
+                    try {
+                        list = loader.call();
+                    } catch (Exception e) {
+                        throw new LazyLoadException(e);
+                    }
+                    loaded = list;
+                    loader = null;
+                }
+            }
+        }
+        return list;
+    }
+}
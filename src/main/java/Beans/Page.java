@@ -0,0 +1,64 @@
+package Beans;
+
+import java.util.List;
+
+/**
+ * Class for a single page of a paginated listing, includes attributes: (list of) items, next page token.
+ *
+ * @param <T> Type of the listed records
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextToken;
+
+    /**
+     * Initiates an instance of Page.
+     *
+     * @param items     Records of the page, in listing order
+     * @param nextToken Opaque token for reading the following page, null if this is the last page
+     */
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    /**
+     * Returns the records of the page, in listing order.
+     *
+     * @return List of records
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Returns the token to pass back for reading the following page.
+     *
+     * @return Next page token, null if this is the last page
+     */
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    /**
+     * Returns whether another page follows this one.
+     *
+     * @return true -> a following page exists, false -> this is the last page
+     */
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    /**
+     * Returns String description of Page attributes: items list, next page token.
+     *
+     * @return String description of Page attributes
+     */
+    @Override
+    public String toString() {
+        return "Page{" +
+                "items=" + items +
+                ", nextToken='" + nextToken + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,20 @@
+package DB;
+
+import java.sql.SQLException;
+
+/**
+ * Functional interface for setting the parameters of a SQL script, in order, for one item of a batch.
+ *
+ * @param <T> Type of the items written by the batch
+ */
+@FunctionalInterface
+public interface BatchBinding<T> {
+    /**
+     * Sets the parameters of the SQL script for a single item.
+     *
+     * @param binder ParameterBinder positioned on the first parameter
+     * @param item   Item whose values are bound
+     * @throws SQLException Thrown if failed to set a parameter
+     */
+    void bind(ParameterBinder binder, T item) throws SQLException;
+}
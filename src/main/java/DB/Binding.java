@@ -0,0 +1,23 @@
+package DB;
+
+import java.sql.SQLException;
+
+/**
+ * Functional interface for setting the parameters of a SQL script, in order, through a ParameterBinder.
+ */
+@FunctionalInterface
+public interface Binding {
+    /**
+     * Binding for SQL script without parameters.
+     */
+    Binding NONE = binder -> {
+    };
+
+    /**
+     * Sets the parameters of the SQL script.
+     *
+     * @param binder ParameterBinder positioned on the first parameter
+     * @throws SQLException Thrown if failed to set a parameter
+     */
+    void bind(ParameterBinder binder) throws SQLException;
+}
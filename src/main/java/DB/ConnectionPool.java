@@ -1,26 +1,70 @@
 package DB;
 
+import Exceptions.ConnectionTimeoutException;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Connection pool creates links from the program to MySQL database. Class is singleton.
+ * Connection pool creates links from the program to MySQL database. The primary pool is a singleton,
+ * while ConnectionRouter opens one additional pool per read replica.
+ * Idle Connections are kept in a lock-free deque, while a fair Semaphore hands them out to waiting threads in FIFO order.
+ * The pool starts with POOL_MIN_IDLE Connections, grows up to POOL_MAX_TOTAL when callers wait longer than
+ * POOL_GROW_THRESHOLD_MILLIS, and closes Connections left idle longer than POOL_IDLE_TTL_MILLIS.
+ * Every Connection owns a StatementCache that lives and dies with it.
  */
 public class ConnectionPool {
-    private static final int NUMBER_OF_CONNECTIONS = 10;
     private static ConnectionPool instance = null;
-    private final Stack<Connection> connections = new Stack<>();
+    private final String url;
+    private final Deque<IdleConnection> connections = new ConcurrentLinkedDeque<>();
+    private final Semaphore available = new Semaphore(0, true);
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService evictor;
+    private volatile long borrowTimeoutMillis = DBManager.POOL_BORROW_TIMEOUT_MILLIS;
+    private volatile boolean closed;
 
     /**
-     * Private constructor to construct new instance of ConnectionPool
+     * Private constructor to construct new instance of ConnectionPool to the primary database at SQL_URL
      *
      * @throws SQLException Thrown if failed to open connections
      */
     private ConnectionPool() throws SQLException {
-        System.out.println("Created new connection pool");
-        openAllConnections();
+        this(DBManager.SQL_URL);
+    }
+
+    /**
+     * Constructs new instance of ConnectionPool to the database at the given URL. Used by ConnectionRouter for replicas.
+     *
+     * @param url JDBC URL of the MySQL server
+     * @throws SQLException Thrown if failed to open connections
+     */
+    public ConnectionPool(String url) throws SQLException {
+        this.url = url;
+        System.out.println("Created new connection pool: " + url);
+        openInitialConnections();
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections,
+                DBManager.POOL_EVICTION_INTERVAL_MILLIS, DBManager.POOL_EVICTION_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -42,60 +86,214 @@ public class ConnectionPool {
     }
 
     /**
-     * Opens all available Connections to MySQL, using DBManager determined SQL_URL, SQL_USER (user name) and SQL_PASS (password),
-     * and pushes them into Stack collection. To be used at the beginning of the program.
+     * Opens a single Connection to MySQL, using the pool's URL and DBManager determined SQL_USER (user name) and SQL_PASS (password).
      *
+     * @return New MySQL Connection
      * @throws SQLException Thrown if failed to get connection
      */
-    private void openAllConnections() throws SQLException {
-        for (int counter = 0; counter < NUMBER_OF_CONNECTIONS; counter++) {
-            final Connection connection = DriverManager.getConnection(DBManager.SQL_URL, DBManager.SQL_USER, DBManager.SQL_PASS);
-            connections.push(connection);
+    private Connection openConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, DBManager.SQL_USER, DBManager.SQL_PASS);
+        statementCaches.put(connection, new StatementCache(connection, DBManager.STATEMENT_CACHE_SIZE));
+        return connection;
+    }
+
+    /**
+     * Opens POOL_MIN_IDLE Connections in parallel and adds them to the idle deque, so start-up time does not grow with pool size.
+     * To be used at the beginning of the program.
+     *
+     * @throws SQLException Thrown if failed to get any of the connections
+     */
+    private void openInitialConnections() throws SQLException {
+        ExecutorService openers = Executors.newFixedThreadPool(DBManager.POOL_MIN_IDLE);
+        List<Future<Connection>> pending = new ArrayList<>();
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int counter = 0; counter < DBManager.POOL_MIN_IDLE; counter++) {
+                pending.add(openers.submit(this::openConnection));
+            }
+            for (Future<Connection> future : pending) {
+                opened.add(future.get());
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            pending.forEach(future -> future.cancel(true));
+            opened.forEach(this::closeQuietly);
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Failed to open connection pool", e);
+        } finally {
+            openers.shutdown();
+        }
+        for (Connection connection : opened) {
+            totalConnections.incrementAndGet();
+            returnConnection(connection);
         }
     }
 
     /**
-     * Closes all open Connections and empties Stack collection.
+     * Waits for every borrowed Connection to be returned, then closes all Connections and empties the idle deque.
      *
      * @throws InterruptedException Thrown if waiting Connections are interrupted
      */
     public void closeAllConnections() throws InterruptedException {
-        synchronized (connections) {
-            while (connections.size() < NUMBER_OF_CONNECTIONS) {
-                connections.wait();
-            }
-            connections.removeAllElements();
+        closed = true;
+        evictor.shutdownNow();
+        available.acquire(totalConnections.get());
+        IdleConnection idle;
+        while ((idle = connections.pollFirst()) != null) {
+            totalConnections.decrementAndGet();
+            closeQuietly(idle.connection);
         }
     }
 
     /**
-     * Returns a Connection from the Connection Stack, if any are available. To be used when exchanging data with MySQL.
+     * Returns a Connection from the idle deque, waiting in line behind earlier callers if none are available.
+     * Opens a new Connection when the wait exceeds POOL_GROW_THRESHOLD_MILLIS and the pool is below POOL_MAX_TOTAL.
+     * To be used when exchanging data with MySQL.
      *
      * @return MySQL Connection
-     * @throws InterruptedException Thrown if waiting for Connection is interrupted
+     * @throws InterruptedException       Thrown if waiting for Connection is interrupted
+     * @throws ConnectionTimeoutException Thrown if no Connection became available within the borrow timeout
+     * @throws SQLException               Thrown if failed to open a new Connection while growing the pool
+     */
+    public Connection getConnection() throws InterruptedException, SQLException {
+        final long timeoutMillis = borrowTimeoutMillis;
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        if (available.tryAcquire(Math.min(DBManager.POOL_GROW_THRESHOLD_MILLIS, timeoutMillis), TimeUnit.MILLISECONDS)) {
+            return connections.pollFirst().connection;
+        }
+        Connection grown = tryGrow();
+        if (grown != null) {
+            return grown;
+        }
+        if (!available.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            throw new ConnectionTimeoutException(timeoutMillis);
+        }
+        return connections.pollFirst().connection;
+    }
+
+    /**
+     * Opens an additional Connection for the caller if the pool has not reached POOL_MAX_TOTAL.
+     *
+     * @return New MySQL Connection, or null if the pool is already at full size
+     * @throws SQLException Thrown if failed to get connection
      */
-    public Connection getConnection() throws InterruptedException {
-        synchronized (connections) {
-            if (connections.isEmpty()) {
-                connections.wait();
+    private Connection tryGrow() throws SQLException {
+        int current;
+        do {
+            current = totalConnections.get();
+            if (closed || current >= DBManager.POOL_MAX_TOTAL) {
+                return null;
             }
-            return connections.pop();
+        } while (!totalConnections.compareAndSet(current, current + 1));
+        try {
+            return openConnection();
+        } catch (SQLException e) {
+            totalConnections.decrementAndGet();
+            throw e;
         }
     }
 
     /**
-     * Returns a Connection to the Connection Stack. To be used at the end of every use of getConnection() method in a "finally" block.
+     * Returns a Connection to the idle deque and hands it to the longest waiting caller, if any.
+     * To be used at the end of every use of getConnection() method in a "finally" block.
      *
      * @param connection MySQL Connection
      */
     public void returnConnection(final Connection connection) {
-        synchronized (connections) {
-            if (connection == null) {
-                System.out.println("Attempt to return null connection terminated");
-                return;
+        if (connection == null) {
+            System.out.println("Attempt to return null connection terminated");
+            return;
+        }
+        connections.offerFirst(new IdleConnection(connection));
+        available.release();
+    }
+
+    /**
+     * Closes Connections that stayed idle longer than POOL_IDLE_TTL_MILLIS, never shrinking the pool below POOL_MIN_IDLE.
+     * Connections are borrowed from the head of the deque, so the longest idle ones gather at its tail.
+     */
+    private void evictIdleConnections() {
+        try {
+            IdleConnection eldest;
+            while (totalConnections.get() > DBManager.POOL_MIN_IDLE
+                    && (eldest = connections.peekLast()) != null && eldest.isExpired()
+                    && available.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                IdleConnection candidate = connections.pollLast();
+                if (!candidate.isExpired()) {
+                    connections.offerLast(candidate);
+                    available.release();
+                    return;
+                }
+                totalConnections.decrementAndGet();
+                closeQuietly(candidate.connection);
             }
-            connections.push(connection);
-            connections.notify();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the PreparedStatement cache belonging to a Connection borrowed from this pool.
+     *
+     * @param connection MySQL Connection borrowed via getConnection()
+     * @return StatementCache of the Connection
+     */
+    public StatementCache getStatementCache(Connection connection) {
+        return statementCaches.computeIfAbsent(connection, key -> new StatementCache(key, DBManager.STATEMENT_CACHE_SIZE));
+    }
+
+    /**
+     * Closes a Connection together with its cached statements, logging instead of throwing on failure.
+     *
+     * @param connection MySQL Connection
+     */
+    private void closeQuietly(Connection connection) {
+        StatementCache statementCache = statementCaches.remove(connection);
+        if (statementCache != null) {
+            statementCache.close();
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Failed to close connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets how long getConnection() waits for a Connection before failing with ConnectionTimeoutException.
+     *
+     * @param borrowTimeoutMillis Borrow timeout in milliseconds
+     */
+    public void setBorrowTimeoutMillis(long borrowTimeoutMillis) {
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+    }
+
+    /**
+     * Returns the number of Connections currently open, both idle and borrowed.
+     *
+     * @return Number of open Connections
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * Idle Connection together with the time it was returned to the pool.
+     */
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long idleSince = System.currentTimeMillis();
+
+        private IdleConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - idleSince >= DBManager.POOL_IDLE_TTL_MILLIS;
         }
     }
 }
@@ -0,0 +1,165 @@
+package DB;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Routes statements between the primary ConnectionPool and the read replica pools. Class is singleton.
+ * Writes always go to the primary. Reads are spread round-robin over the replicas listed in REPLICA_URLS,
+ * or go to the primary if none are configured.
+ * A thread that wrote within READ_YOUR_WRITES_WINDOW_MILLIS reads from the primary, so it sees its own writes
+ * even while the replicas are still catching up. The window belongs to the thread, not to a login session: a session
+ * whose requests are served by several threads only reads its own writes on the thread that made them. Work handed
+ * to other threads inherits the window only when routed through captureReadRoute().
+ */
+public class ConnectionRouter {
+    private static ConnectionRouter instance = null;
+    private final ThreadLocal<Long> lastWrite = new ThreadLocal<>();
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final long windowNanos;
+
+    /**
+     * Private constructor to construct new instance of ConnectionRouter, opening a ConnectionPool per replica.
+     *
+     * @throws SQLException Thrown if failed to open the primary or any replica pool
+     */
+    private ConnectionRouter() throws SQLException {
+        this(ConnectionPool.getInstance(), openReplicas(), DBManager.READ_YOUR_WRITES_WINDOW_MILLIS);
+    }
+
+    /**
+     * Constructs new instance of ConnectionRouter over given pools. Lets tests route to a stand-in replica.
+     *
+     * @param primary      Pool of the primary database
+     * @param replicas     Pools of the read replicas
+     * @param windowMillis Length of the read-your-writes window
+     */
+    public ConnectionRouter(ConnectionPool primary, List<ConnectionPool> replicas, long windowMillis) {
+        this.primary = primary;
+        this.replicas.addAll(replicas);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    /**
+     * Opens a ConnectionPool per replica listed in REPLICA_URLS.
+     *
+     * @return Replica pools
+     * @throws SQLException Thrown if failed to open any replica pool
+     */
+    private static List<ConnectionPool> openReplicas() throws SQLException {
+        List<ConnectionPool> pools = new ArrayList<>();
+        for (String url : DBManager.REPLICA_URLS) {
+            pools.add(new ConnectionPool(url));
+        }
+        return pools;
+    }
+
+    /**
+     * Static method for returning an instance of ConnectionRouter.
+     * Constructs a new ConnectionRouter if not exists, else returns existing instance.
+     *
+     * @return ConnectionRouter instance
+     * @throws SQLException Thrown if failed to construct new ConnectionRouter
+     */
+    public static ConnectionRouter getInstance() throws SQLException {
+        if (instance == null) {
+            synchronized (ConnectionRouter.class) {
+                if (instance == null) {
+                    instance = new ConnectionRouter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the pool to borrow a Connection from for a write and starts the calling thread's read-your-writes window.
+     * Only reads made on the calling thread, or through a route it captures, are guaranteed to see the write.
+     *
+     * @return Primary ConnectionPool
+     */
+    public ConnectionPool forWrite() {
+        recordWrite();
+        return primary;
+    }
+
+    /**
+     * Starts the calling thread's read-your-writes window. To be called by a thread whose write was committed on its
+     * behalf by another thread, e.g. a purchase written by PurchaseWriteBatcher.
+     */
+    public void recordWrite() {
+        lastWrite.set(System.nanoTime());
+    }
+
+    /**
+     * Returns the pool to borrow a Connection from for a read.
+     * Only writes made on the calling thread send the read to the primary; writes of the same login session made on
+     * other threads may not be visible yet.
+     *
+     * @return Primary ConnectionPool if no replicas are configured or the calling thread wrote recently, else a replica pool
+     */
+    public ConnectionPool forRead() {
+        if (replicas.isEmpty() || isInReadYourWritesWindow()) {
+            return primary;
+        }
+        return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    /**
+     * Captures the read routing of the calling thread, for reads made on its behalf by other threads.
+     * If the calling thread is in its read-your-writes window, the captured route always returns the primary,
+     * else it spreads reads over the replicas like forRead().
+     *
+     * @return Route returning the pool for each read
+     */
+    public Supplier<ConnectionPool> captureReadRoute() {
+        if (replicas.isEmpty() || isInReadYourWritesWindow()) {
+            return () -> primary;
+        }
+        return () -> replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    /**
+     * Checks whether the calling thread wrote to the primary within READ_YOUR_WRITES_WINDOW_MILLIS.
+     *
+     * @return true -> reads should go to the primary, false -> reads may go to a replica
+     */
+    private boolean isInReadYourWritesWindow() {
+        Long writtenAt = lastWrite.get();
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt < windowNanos) {
+            return true;
+        }
+        lastWrite.remove();
+        return false;
+    }
+
+    /**
+     * Returns the number of replica pools reads are spread over.
+     *
+     * @return Number of replica pools
+     */
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Closes the Connections of every replica pool and of the primary pool.
+     *
+     * @throws InterruptedException Thrown if waiting Connections are interrupted
+     */
+    public void closeAllConnections() throws InterruptedException {
+        for (ConnectionPool replica : replicas) {
+            replica.closeAllConnections();
+        }
+        primary.closeAllConnections();
+    }
+}
@@ -1,14 +1,77 @@
 package DB;
 
+import java.util.List;
+
 /**
  * Class containing all MySQL script used in the program.
  */
 public class DBManager {
     // User info:
-    public static final String SQL_URL = "jdbc:mysql://localhost:3306/";
+    public static final String SQL_URL = "jdbc:mysql://localhost:3306/?useServerPrepStmts=true&rewriteBatchedStatements=true&useCursorFetch=true";
     public static final String SQL_USER = "root";
     public static final String SQL_PASS = "12345678";
 
+    // Replica settings:
+    public static final List<String> REPLICA_URLS = List.of();
+    public static final long READ_YOUR_WRITES_WINDOW_MILLIS = 2_000;
+
+    // Connection pool settings:
+    public static final int POOL_MIN_IDLE = 3;
+    public static final int POOL_MAX_TOTAL = 10;
+    public static final long POOL_BORROW_TIMEOUT_MILLIS = 5_000;
+    public static final long POOL_GROW_THRESHOLD_MILLIS = 20;
+    public static final long POOL_IDLE_TTL_MILLIS = 300_000;
+    public static final long POOL_EVICTION_INTERVAL_MILLIS = 30_000;
+    public static final int STATEMENT_CACHE_SIZE = 64;
+
+    // Batch settings:
+    public static final int BATCH_CHUNK_SIZE = 1_000;
+
+    // Stream settings:
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    // Purchase group-commit settings:
+    public static final int PURCHASE_BATCH_MAX_ROWS = 256;
+    public static final long PURCHASE_BATCH_MAX_LATENCY_MILLIS = 5;
+
+    // Hot inventory settings:
+    public static final int HOT_INVENTORY_STRIPES = 16;
+    public static final long HOT_INVENTORY_RECONCILE_INTERVAL_MILLIS = 1_000;
+
+    // Expiration job settings:
+    public static final long EXPIRATION_JOB_PERIOD_MILLIS = 86_400_000;
+    public static final int EXPIRATION_PURGE_CHUNK_SIZE = 500;
+    public static final long EXPIRATION_PURGE_PAUSE_MILLIS = 100;
+
+    // Multi-get settings:
+    public static final int MULTI_GET_CHUNK_SIZE = 500;
+    public static final int MULTI_GET_PARALLELISM = 4;
+    public static final int[] MULTI_GET_IN_LIST_SIZES = {1, 8, 32, 128, MULTI_GET_CHUNK_SIZE};
+
+    // Pagination settings:
+    public static final int MAX_PAGE_SIZE = 1_000;
+
+    // Session settings:
+    public static final int MAX_SESSIONS = 10_000;
+    public static final long SESSION_IDLE_TTL_MILLIS = 30 * 60 * 1_000;
+
+    // Coupon cache settings:
+    public static final int COUPON_CACHE_MAX_SIZE = 10_000;
+    public static final int COMPANY_COUPONS_CACHE_MAX_COMPANIES = 1_000;
+    public static final long COUPON_CACHE_TTL_MILLIS = 60_000;
+    public static final int COUPON_CACHE_STAMP_STRIPES = 4_096;
+
+    // Purchase index settings:
+    public static final int PURCHASE_INDEX_MAX_CUSTOMERS = 100_000;
+
+    // Existence filter settings:
+    public static final long EXISTENCE_FILTER_MIN_CAPACITY = 100_000;
+    public static final double EXISTENCE_FILTER_FALSE_POSITIVE_RATE = 0.01;
+    public static final int EXISTENCE_FILTER_MAX_PENDING = 100_000;
+
+    // MySQL error codes:
+    public static final int DUPLICATE_ENTRY_ERROR_CODE = 1062;
+
     // Schema Creation:
     public static final String CREATE_SCHEMA = "CREATE SCHEMA IF NOT EXISTS `coupon_project`";
 
@@ -49,7 +112,7 @@ public class DBManager {
     public static final String CREATE_TABLE_CUSTOMER_TO_COUPON = "CREATE TABLE IF NOT EXISTS `coupon_project`.`customer_to_coupon` (" +
             "  `id_customer` BIGINT NOT NULL," +
             "  `id_coupon` BIGINT NOT NULL," +
-            "  INDEX `id_customer_idx` (`id_customer` ASC) VISIBLE," +
+            "  PRIMARY KEY (`id_customer`, `id_coupon`)," +
             "  INDEX `id_coupon_idx` (`id_coupon` ASC) VISIBLE," +
             "  CONSTRAINT `id_customer`" +
             "    FOREIGN KEY (`id_customer`)" +
@@ -62,18 +125,91 @@ public class DBManager {
             "    ON DELETE CASCADE" +
             "    ON UPDATE CASCADE);";
 
+    public static final String CREATE_TABLE_HOT_INVENTORY = "CREATE TABLE IF NOT EXISTS `coupon_project`.`hot_inventory` (" +
+            "  `coupon_id` BIGINT NOT NULL," +
+            "  `base_amount` INT NOT NULL," +
+            "  `base_purchases` INT NOT NULL," +
+            "  PRIMARY KEY (`coupon_id`)," +
+            "  CONSTRAINT `hot_coupon_id`" +
+            "    FOREIGN KEY (`coupon_id`)" +
+            "    REFERENCES `coupon_project`.`coupons` (`coupon_id`)" +
+            "    ON DELETE CASCADE" +
+            "    ON UPDATE CASCADE);";
+
+    // Schema migrations:
+    public static final String CREATE_TABLE_SCHEMA_VERSION = "CREATE TABLE IF NOT EXISTS `coupon_project`.`schema_version` (" +
+            "  `version` INT NOT NULL," +
+            "  `description` VARCHAR(200) NOT NULL," +
+            "  `checksum` BIGINT NOT NULL," +
+            "  `applied_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP," +
+            "  PRIMARY KEY (`version`));";
+    public static final String READ_SCHEMA_VERSIONS = "SELECT version, checksum FROM `coupon_project`.`schema_version` ORDER BY version";
+    public static final String COUNT_SCHEMA_VERSIONS = "SELECT COUNT(*) FROM `coupon_project`.`schema_version`";
+    public static final String CREATE_SCHEMA_VERSION = "INSERT INTO `coupon_project`.`schema_version` (version, description, checksum) VALUES (?, ?, ?)";
+    public static final String COUNT_CUSTOMER_TO_COUPON_PRIMARY_KEY =
+            "SELECT COUNT(*) FROM information_schema.table_constraints " +
+                    "WHERE table_schema = 'coupon_project' AND table_name = 'customer_to_coupon' AND constraint_type = 'PRIMARY KEY'";
+    public static final String CREATE_CUSTOMER_TO_COUPON_DISTINCT_COPY =
+            "CREATE TABLE `coupon_project`.`customer_to_coupon_distinct` AS SELECT DISTINCT id_customer, id_coupon FROM `coupon_project`.`customer_to_coupon`";
+    public static final String DELETE_ALL_CUSTOMER_TO_COUPON = "DELETE FROM `coupon_project`.`customer_to_coupon`";
+    public static final String INSERT_CUSTOMER_TO_COUPON_FROM_DISTINCT_COPY =
+            "INSERT INTO `coupon_project`.`customer_to_coupon` (id_customer, id_coupon) SELECT id_customer, id_coupon FROM `coupon_project`.`customer_to_coupon_distinct`";
+    public static final String DROP_CUSTOMER_TO_COUPON_DISTINCT_COPY = "DROP TABLE IF EXISTS `coupon_project`.`customer_to_coupon_distinct`";
+    public static final String ADD_CUSTOMER_TO_COUPON_PRIMARY_KEY =
+            "ALTER TABLE `coupon_project`.`customer_to_coupon` ADD PRIMARY KEY (`id_customer`, `id_coupon`), DROP INDEX `id_customer_idx`";
+    public static final String COUNT_COMPANIES_LOOKUP_INDEXES =
+            "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = 'coupon_project' AND table_name = 'companies' AND index_name IN ('companies_email_idx', 'companies_name_idx')";
+    public static final String COUNT_CUSTOMERS_LOOKUP_INDEXES =
+            "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = 'coupon_project' AND table_name = 'customers' AND index_name = 'customers_email_idx'";
+    public static final String COUNT_COUPONS_LOOKUP_INDEXES =
+            "SELECT COUNT(*) FROM information_schema.statistics " +
+                    "WHERE table_schema = 'coupon_project' AND table_name = 'coupons' AND index_name IN " +
+                    "('coupons_company_title_idx', 'coupons_company_category_idx', 'coupons_company_price_idx', 'coupons_end_date_idx')";
+    public static final String COUNT_HOT_INVENTORY_SOLD_COLUMN =
+            "SELECT COUNT(*) FROM information_schema.columns " +
+                    "WHERE table_schema = 'coupon_project' AND table_name = 'hot_inventory' AND column_name = 'sold'";
+    public static final String ADD_HOT_INVENTORY_SOLD_COLUMN =
+            "ALTER TABLE `coupon_project`.`hot_inventory` ADD COLUMN `sold` INT NOT NULL DEFAULT 0";
+    public static final String INIT_HOT_INVENTORY_SOLD =
+            "UPDATE `coupon_project`.`hot_inventory` AS h " +
+                    "SET h.sold = (SELECT COUNT(*) FROM `coupon_project`.`customer_to_coupon` WHERE id_coupon = h.coupon_id) - h.base_purchases";
+    public static final String ADD_COMPANIES_LOOKUP_INDEXES =
+            "ALTER TABLE `coupon_project`.`companies` ADD INDEX `companies_email_idx` (`email`), ADD INDEX `companies_name_idx` (`name`)";
+    public static final String ADD_CUSTOMERS_LOOKUP_INDEXES =
+            "ALTER TABLE `coupon_project`.`customers` ADD INDEX `customers_email_idx` (`email`)";
+    public static final String ADD_COUPONS_LOOKUP_INDEXES =
+            "ALTER TABLE `coupon_project`.`coupons` " +
+                    "ADD INDEX `coupons_company_title_idx` (`company_id`, `title`), " +
+                    "ADD INDEX `coupons_company_category_idx` (`company_id`, `category`), " +
+                    "ADD INDEX `coupons_company_price_idx` (`company_id`, `price`), " +
+                    "ADD INDEX `coupons_end_date_idx` (`end_date`)";
+
     // Company CRUD:
     public static final String CREATE_COMPANY = "INSERT INTO `coupon_project`.`companies` (name, email, password) VALUES(?, ?, ?)";
     public static final String READ_COMPANY_BY_ID = "SELECT id, name, email FROM `coupon_project`.`companies` WHERE id = ?";
     public static final String READ_ALL_COMPANIES = "SELECT id, name, email FROM `coupon_project`.`companies`";
+    public static final String READ_COMPANIES_BY_IDS = "SELECT id, name, email FROM `coupon_project`.`companies` WHERE id IN %s";
+    public static final String READ_COMPANIES_AFTER_ID = "SELECT id, name, email FROM `coupon_project`.`companies` WHERE id > ? ORDER BY id LIMIT ?";
+    public static final String READ_ALL_COMPANIES_WITH_COUPONS =
+            "SELECT co.id, co.name, co.email, c.coupon_id, c.company_id, c.amount, c.price, c.category, c.title, c.description, c.image, c.start_date, c.end_date " +
+                    "FROM `coupon_project`.`companies` AS co " +
+                    "LEFT JOIN `coupon_project`.`coupons` AS c ON c.company_id = co.id " +
+                    "ORDER BY co.id, c.coupon_id";
     public static final String UPDATE_COMPANY_BY_ID = "UPDATE `coupon_project`.`companies` SET email = ?, password = ? WHERE id = ?";
     public static final String DELETE_COMPANY_BY_ID = "DELETE FROM `coupon_project`.`companies` WHERE id = ?";
+    public static final String READ_ALL_COMPANY_NAMES_AND_EMAILS = "SELECT name, email FROM `coupon_project`.`companies`";
+    public static final String COUNT_COMPANIES = "SELECT COUNT(*) FROM `coupon_project`.`companies`";
     public static final String COUNT_COMPANIES_BY_NAME_OR_EMAIL = "SELECT COUNT(*) FROM `coupon_project`.`companies` WHERE name = ? OR email = ?";
+    public static final String COUNT_COMPANIES_BY_NAMES_OR_EMAILS = "SELECT COUNT(*) FROM `coupon_project`.`companies` WHERE name IN %1$s OR email IN %1$s";
 
     // Coupon CRUD:
     public static final String CREATE_COUPON = "INSERT INTO `coupon_project`.`coupons` (company_id, amount, price, category, title, description, image, start_date, end_date) VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    public static final String READ_COUPON_IDS_BY_CUSTOMER_ID = "SELECT id_coupon FROM `coupon_project`.`customer_to_coupon` WHERE id_customer = ?";
     public static final String ADD_COUPON_PURCHASE = "INSERT INTO `coupon_project`.`customer_to_coupon` (id_customer, id_coupon) VALUES (?, ?)";
     public static final String READ_COUPON_BY_ID = "SELECT * FROM `coupon_project`.`coupons` WHERE coupon_id = ?";
+    public static final String READ_COUPONS_BY_IDS = "SELECT * FROM `coupon_project`.`coupons` WHERE coupon_id IN %s";
     public static final String READ_ALL_COUPONS = "SELECT * FROM `coupon_project`.`coupons`";
     public static final String READ_COUPONS_BY_CUSTOMER_ID =
             "SELECT c.coupon_id, c.company_id, c.amount, c.price, c.category, c.title, c.description, c.image, c.start_date, c.end_date " +
@@ -95,17 +231,54 @@ public class DBManager {
     public static final String READ_COUPONS_BY_COMPANY_ID_AND_CATEGORY = "SELECT * FROM `coupon_project`.`coupons` WHERE company_id = ? AND category = ?";
     public static final String UPDATE_COUPON_BY_ID = "UPDATE `coupon_project`.`coupons` SET title = ?, category = ? ,amount = ? , description = ? ,price = ? ,image = ? ,end_date = ? WHERE coupon_id = ?";
     public static final String DELETE_COUPON_BY_ID = "DELETE FROM `coupon_project`.`coupons` WHERE coupon_id = ?";
-    public static final String DELETE_COUPON_BY_END_DATE = "DELETE FROM `coupon_project`.`coupons` WHERE end_date < ?";
+    public static final String READ_EXPIRED_COUPON_IDS = "SELECT coupon_id FROM `coupon_project`.`coupons` WHERE end_date < ? ORDER BY coupon_id LIMIT ?";
+    public static final String DELETE_EXPIRED_COUPONS_BY_IDS = "DELETE FROM `coupon_project`.`coupons` WHERE coupon_id IN %s AND end_date < ?";
     public static final String COUNT_COUPONS_BY_COMPANY_ID_AND_TITLE = "SELECT COUNT(*) FROM `coupon_project`.`coupons` WHERE company_id = ? AND title = ?";
+    public static final String COUNT_COUPONS_BY_COMPANY_ID_AND_TITLES = "SELECT COUNT(*) FROM `coupon_project`.`coupons` WHERE company_id = ? AND title IN %s";
     public static final String COUNT_PURCHASE_BY_IDS = "SELECT COUNT(*) FROM `coupon_project`.`customer_to_coupon` WHERE id_coupon = ? AND id_customer = ?";
+    public static final String INCREMENT_COUPON_AMOUNT = "UPDATE `coupon_project`.`coupons` SET amount = amount + 1 WHERE coupon_id = ?";
+    public static final String DECREMENT_COUPON_AMOUNT_IF_AVAILABLE = "UPDATE `coupon_project`.`coupons` SET amount = amount - 1 WHERE coupon_id = ? AND amount > 0 AND end_date >= ?";
+
+    // Hot inventory:
+    public static final String LOCK_COUPON_BY_ID = "SELECT coupon_id FROM `coupon_project`.`coupons` WHERE coupon_id = ? FOR UPDATE";
+    public static final String CREATE_HOT_INVENTORY =
+            "INSERT IGNORE INTO `coupon_project`.`hot_inventory` (coupon_id, base_amount, base_purchases) " +
+                    "SELECT c.coupon_id, c.amount, (SELECT COUNT(*) FROM `coupon_project`.`customer_to_coupon` WHERE id_coupon = c.coupon_id) " +
+                    "FROM `coupon_project`.`coupons` AS c WHERE c.coupon_id = ?";
+    public static final String READ_HOT_INVENTORY = "SELECT h.coupon_id, h.base_amount - h.sold FROM `coupon_project`.`hot_inventory` AS h";
+    public static final String READ_HOT_INVENTORY_BY_COUPON_ID = READ_HOT_INVENTORY + " WHERE h.coupon_id = ?";
+    public static final String COUNT_HOT_INVENTORY_BY_COUPON_ID = "SELECT COUNT(*) FROM `coupon_project`.`hot_inventory` WHERE coupon_id = ?";
+    public static final String DECREMENT_HOT_INVENTORY_SOLD = "UPDATE `coupon_project`.`hot_inventory` SET sold = sold - 1 WHERE coupon_id = ?";
+    public static final String INCREMENT_HOT_INVENTORY_SOLD = "UPDATE `coupon_project`.`hot_inventory` SET sold = sold + 1 WHERE coupon_id = ?";
+    public static final String RECONCILE_HOT_COUPON_AMOUNT =
+            "UPDATE `coupon_project`.`coupons` AS c JOIN `coupon_project`.`hot_inventory` AS h ON h.coupon_id = c.coupon_id " +
+                    "SET c.amount = h.base_amount - h.sold WHERE c.coupon_id = ?";
+    public static final String DELETE_HOT_INVENTORY_BY_COUPON_ID = "DELETE FROM `coupon_project`.`hot_inventory` WHERE coupon_id = ?";
 
     // Customer CRUD:
     public static final String CREATE_CUSTOMER = "INSERT INTO `coupon_project`.`customers` (first_name, last_name, email, password) VALUES(?, ?, ?, ?)";
     public static final String READ_CUSTOMER_BY_ID = "SELECT customer_id, first_name, last_name, email FROM `coupon_project`.`customers` WHERE customer_id = ?";
     public static final String READ_ALL_CUSTOMERS = "SELECT customer_id, first_name, last_name, email FROM `coupon_project`.`customers`";
+    public static final String READ_CUSTOMERS_BY_IDS = "SELECT customer_id, first_name, last_name, email FROM `coupon_project`.`customers` WHERE customer_id IN %s";
+    public static final String READ_CUSTOMERS_AFTER_ID = "SELECT customer_id, first_name, last_name, email FROM `coupon_project`.`customers` WHERE customer_id > ? ORDER BY customer_id LIMIT ?";
+    public static final String READ_ALL_CUSTOMERS_WITH_COUPONS =
+            "SELECT cu.customer_id, cu.first_name, cu.last_name, cu.email, c.coupon_id, c.company_id, c.amount, c.price, c.category, c.title, c.description, c.image, c.start_date, c.end_date " +
+                    "FROM `coupon_project`.`customers` AS cu " +
+                    "LEFT JOIN `coupon_project`.`customer_to_coupon` AS ctc ON ctc.id_customer = cu.customer_id " +
+                    "LEFT JOIN `coupon_project`.`coupons` AS c ON c.coupon_id = ctc.id_coupon " +
+                    "ORDER BY cu.customer_id, c.coupon_id";
+    public static final String READ_CUSTOMERS_WITH_COUPONS_AFTER_ID =
+            "SELECT cu.customer_id, cu.first_name, cu.last_name, cu.email, c.coupon_id, c.company_id, c.amount, c.price, c.category, c.title, c.description, c.image, c.start_date, c.end_date " +
+                    "FROM (SELECT customer_id, first_name, last_name, email FROM `coupon_project`.`customers` WHERE customer_id > ? ORDER BY customer_id LIMIT ?) AS cu " +
+                    "LEFT JOIN `coupon_project`.`customer_to_coupon` AS ctc ON ctc.id_customer = cu.customer_id " +
+                    "LEFT JOIN `coupon_project`.`coupons` AS c ON c.coupon_id = ctc.id_coupon " +
+                    "ORDER BY cu.customer_id, c.coupon_id";
     public static final String UPDATE_CUSTOMER_BY_ID = "UPDATE `coupon_project`.`customers` SET first_name = ?,last_name = ?, email = ?, password = ? WHERE customer_id = ?";
     public static final String DELETE_CUSTOMER_BY_ID = "DELETE FROM `coupon_project`.`customers` WHERE customer_id = ?";
+    public static final String READ_ALL_CUSTOMER_EMAILS = "SELECT email FROM `coupon_project`.`customers`";
+    public static final String COUNT_CUSTOMERS = "SELECT COUNT(*) FROM `coupon_project`.`customers`";
     public static final String COUNT_CUSTOMERS_BY_EMAIL = "SELECT COUNT(*) FROM `coupon_project`.`customers` WHERE email = ?";
+    public static final String COUNT_CUSTOMERS_BY_EMAILS = "SELECT COUNT(*) FROM `coupon_project`.`customers` WHERE email IN %s";
 
     // Login:
     public static final String COMPANY_LOGGING = "SELECT id FROM `coupon_project`.`companies` WHERE email = ? AND password = ?";
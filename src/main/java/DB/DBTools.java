@@ -1,16 +1,46 @@
 package DB;
 
+import Exceptions.DBStreamException;
+
 import java.sql.*;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Class containing static generic methods for executing MySQL script in different contexts:
  * no parameters -> return boolean,
  * parameters -> return boolean,
- * no parameters -> return ResultSet,
- * parameters -> return ResultSet
+ * parameters -> return List of mapped rows,
+ * parameters -> return single mapped row,
+ * parameters -> return single int (COUNT queries),
+ * list of items -> executed as JDBC batches,
+ * several statements -> executed as one transaction,
+ * parameters -> return lazy Stream of mapped rows,
+ * many ID numbers -> return List of mapped rows, read in parallel chunks
+ * Writes borrow Connections from the primary pool and reads from a replica pool, as chosen by ConnectionRouter.
+ * Statements are taken from the borrowed Connection's StatementCache and stay open for reuse.
+ * Query results are fully read and their ResultSet closed before the Connection is returned to the pool,
+ * except for streamed queries, which hold their Connection until the Stream is closed.
  */
 public class DBTools {
+    private static final ExecutorService MULTI_GET_EXECUTOR = Executors.newFixedThreadPool(DBManager.MULTI_GET_PARALLELISM, runnable -> {
+        Thread thread = new Thread(runnable, "multi-get-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     /**
      * Static generic method for accepting SQL script and executing query.
      *
@@ -19,129 +49,491 @@ public class DBTools {
      * @throws SQLException Thrown if SQL statement not executed
      */
     public static boolean runQuery(String sql) throws SQLException {
+        return runQuery(sql, Binding.NONE);
+    }
+
+    /**
+     * Static generic method for accepting SQL script, parameters and executing query.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @return true if successful, false if failed
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public static boolean runQuery(String sql, Binding params) throws SQLException {
+        ConnectionPool pool = ConnectionRouter.getInstance().forWrite();
         Connection connection = null;
         try {
-            connection = ConnectionPool.getInstance().getConnection();
-            PreparedStatement statement = connection.prepareStatement(sql);
+            connection = pool.getConnection();
+            StatementCache statementCache = pool.getStatementCache(connection);
+            PreparedStatement statement = statementCache.prepare(sql);
+            params.bind(statementCache.binderFor(statement));
             statement.execute();
             return true;
         } catch (InterruptedException e) {
             System.out.println("Error: " + e.getMessage());
             return false;
         } finally {
-            ConnectionPool.getInstance().returnConnection(connection);
+            pool.returnConnection(connection);
         }
     }
 
     /**
-     * Static generic method for accepting SQL script, parameters and executing query.
+     * Static generic method for accepting SQL script and writing a list of items as JDBC batches of BATCH_CHUNK_SIZE.
      *
-     * @param sql    SQL script for execution
-     * @param params parameter input for SQL script
-     * @return true if successful, false if failed
-     * @throws SQLException Thrown if SQL statement not executed
+     * @param sql     SQL script for execution
+     * @param items   Items to write, one statement execution each
+     * @param binding Sets the parameters for a single item
+     * @param <T>     Type of the items
+     * @return Number of items written
+     * @throws SQLException Thrown if a batch was not executed, previously committed chunks stay written
+     */
+    public static <T> int runBatch(String sql, List<T> items, BatchBinding<T> binding) throws SQLException {
+        return runBatch(sql, items, binding, DBManager.BATCH_CHUNK_SIZE);
+    }
+
+    /**
+     * Static generic method for accepting SQL script and writing a list of items as JDBC batches.
+     * Every chunk is sent with addBatch/executeBatch and committed as its own transaction.
+     *
+     * @param sql       SQL script for execution
+     * @param items     Items to write, one statement execution each
+     * @param binding   Sets the parameters for a single item
+     * @param chunkSize Maximum number of items per batch and transaction
+     * @param <T>       Type of the items
+     * @return Number of items written
+     * @throws SQLException Thrown if a batch was not executed, previously committed chunks stay written
      */
-    public static boolean runQuery(String sql, Map<Integer, Object> params) throws SQLException {
+    public static <T> int runBatch(String sql, List<T> items, BatchBinding<T> binding, int chunkSize) throws SQLException {
+        ConnectionPool pool = ConnectionRouter.getInstance().forWrite();
         Connection connection = null;
         try {
-            connection = ConnectionPool.getInstance().getConnection();
-            PreparedStatement statement = connection.prepareStatement(sql);
-            params.forEach((key, value) -> {
-                try {
-                    if (value instanceof Integer) {
-                        statement.setInt(key, (Integer) value);
-                    } else if (value instanceof String) {
-                        statement.setString(key, String.valueOf(value));
-                    } else if (value instanceof Date) {
-                        statement.setDate(key, (Date) value);
-                    } else if (value instanceof Double) {
-                        statement.setDouble(key, (Double) value);
-                    } else if (value instanceof Float) {
-                        statement.setFloat(key, (Float) value);
-                    } else if (value instanceof Long) {
-                        statement.setLong(key, (Long) value);
-                    } else if (value instanceof Byte) {
-                        statement.setByte(key, (Byte) value);
-                    } else if (value instanceof Boolean) {
-                        statement.setBoolean(key, (Boolean) value);
+            connection = pool.getConnection();
+            StatementCache statementCache = pool.getStatementCache(connection);
+            PreparedStatement statement = statementCache.prepare(sql);
+            boolean autoCommit = connection.getAutoCommit();
+            int written = 0;
+            connection.setAutoCommit(false);
+            try {
+                for (int start = 0; start < items.size(); start += chunkSize) {
+                    List<T> chunk = items.subList(start, Math.min(items.size(), start + chunkSize));
+                    for (T item : chunk) {
+                        binding.bind(statementCache.binderFor(statement), item);
+                        statement.addBatch();
                     }
-                } catch (SQLException e) {
-                    System.out.println(e.getMessage());
+                    statement.executeBatch();
+                    connection.commit();
+                    written += chunk.size();
                 }
-            });
-            statement.execute();
-            return true;
+                return written;
+            } catch (SQLException e) {
+                statement.clearBatch();
+                connection.rollback();
+                throw new SQLException("Batch failed after " + written + " rows were committed", e);
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (InterruptedException e) {
-            System.out.println("Error: " + e.getMessage());
-            return false;
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
         } finally {
-            ConnectionPool.getInstance().returnConnection(connection);
+            pool.returnConnection(connection);
         }
     }
 
     /**
-     * Static generic method for accepting SQL script and retrieving ResultSet.
+     * Static generic method for running several statements as one transaction on a single primary Connection.
+     * Commits when the work returns, unless it called setRollbackOnly(). Rolls back if the work throws.
      *
-     * @param sql SQL script for execution
-     * @return ResultSet if successful, else null
-     * @throws SQLException Thrown if SQL statement not executed
+     * @param work Statements of the transaction
+     * @param <T>  Type of the value produced by the transaction
+     * @return Value returned by the work
+     * @throws SQLException Thrown if a statement, the commit or the rollback was not executed
      */
-    public static ResultSet runQueryForResult(String sql) throws SQLException {
+    public static <T> T runInTransaction(TransactionWork<T> work) throws SQLException {
+        ConnectionPool pool = ConnectionRouter.getInstance().forWrite();
         Connection connection = null;
         try {
-            connection = ConnectionPool.getInstance().getConnection();
-            PreparedStatement statement = connection.prepareStatement(sql);
-            return statement.executeQuery();
+            connection = pool.getConnection();
+            Transaction transaction = new Transaction(pool.getStatementCache(connection));
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                T value = work.execute(transaction);
+                if (transaction.isRollbackOnly()) {
+                    connection.rollback();
+                } else {
+                    connection.commit();
+                }
+                return value;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
         } catch (InterruptedException e) {
-            System.out.println("Error: " + e.getMessage());
-            return null;
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
         } finally {
-            ConnectionPool.getInstance().returnConnection(connection);
+            pool.returnConnection(connection);
         }
     }
 
     /**
-     * Static generic method for accepting SQL script, parameters and retrieving ResultSet.
+     * Static generic method for accepting SQL script and retrieving every row converted by a RowMapper.
+     *
+     * @param sql    SQL script for execution
+     * @param mapper Converts each row into an object
+     * @param <T>    Type of the mapped rows
+     * @return List of mapped rows, empty if the query returned no rows
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public static <T> List<T> runQueryForList(String sql, RowMapper<T> mapper) throws SQLException {
+        return runQueryForList(sql, Binding.NONE, mapper);
+    }
+
+    /**
+     * Static generic method for accepting SQL script, parameters and retrieving every row converted by a RowMapper.
      *
      * @param sql    SQL script for execution
      * @param params parameter input for SQL script
-     * @return ResultSet if successful, else null
+     * @param mapper Converts each row into an object
+     * @param <T>    Type of the mapped rows
+     * @return List of mapped rows, empty if the query returned no rows
      * @throws SQLException Thrown if SQL statement not executed
      */
-    public static ResultSet runQueryForResult(String sql, Map<Integer, Object> params) throws SQLException {
-        Connection connection = null;
+    public static <T> List<T> runQueryForList(String sql, Binding params, RowMapper<T> mapper) throws SQLException {
+        return readQuery(sql, params, result -> {
+            List<T> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(mapper.mapRow(result));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Static generic method for accepting SQL script, parameters and retrieving the first row converted by a RowMapper.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @param mapper Converts the row into an object
+     * @param <T>    Type of the mapped row
+     * @return Mapped first row, or null if the query returned no rows
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public static <T> T runQueryForObject(String sql, Binding params, RowMapper<T> mapper) throws SQLException {
+        return readQuery(sql, params, result -> result.next() ? mapper.mapRow(result) : null);
+    }
+
+    /**
+     * Static generic method for accepting SQL script, parameters and retrieving the first column of the first row as int.
+     * Meant for COUNT(*) queries.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @return int value of the first column
+     * @throws SQLException Thrown if SQL statement not executed or returned no rows
+     */
+    public static int runQueryForInt(String sql, Binding params) throws SQLException {
+        return readQuery(sql, params, result -> {
+            if (!result.next()) {
+                throw new SQLException("Query returned no rows: " + sql);
+            }
+            return result.getInt(1);
+        });
+    }
+
+    /**
+     * Static generic method for accepting SQL script and streaming every row converted by a RowMapper.
+     *
+     * @param sql    SQL script for execution
+     * @param mapper Converts each row into an object
+     * @param <T>    Type of the mapped rows
+     * @return Lazy Stream of mapped rows, to be closed after use
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public static <T> Stream<T> streamQuery(String sql, RowMapper<T> mapper) throws SQLException {
+        return streamQuery(sql, Binding.NONE, mapper);
+    }
+
+    /**
+     * Static generic method for accepting SQL script, parameters and streaming every row converted by a RowMapper.
+     * Rows are read through a forward-only, read-only server cursor STREAM_FETCH_SIZE rows at a time, so memory use does
+     * not grow with the size of the result. The Connection stays borrowed until the Stream is exhausted or closed,
+     * so the Stream should be consumed in a try-with-resources block.
+     * Failures while reading rows are thrown as DBStreamException.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @param mapper Converts each row into an object
+     * @param <T>    Type of the mapped rows
+     * @return Lazy Stream of mapped rows, to be closed after use
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public static <T> Stream<T> streamQuery(String sql, Binding params, RowMapper<T> mapper) throws SQLException {
+        ConnectionPool pool = ConnectionRouter.getInstance().forRead();
+        Connection connection;
         try {
-            connection = ConnectionPool.getInstance().getConnection();
-            PreparedStatement statement = connection.prepareStatement(sql);
-            params.forEach((key, value) -> {
-                try {
-                    if (value instanceof Integer) {
-                        statement.setInt(key, (Integer) value);
-                    } else if (value instanceof String) {
-                        statement.setString(key, String.valueOf(value));
-                    } else if (value instanceof Date) {
-                        statement.setDate(key, (Date) value);
-                    } else if (value instanceof Double) {
-                        statement.setDouble(key, (Double) value);
-                    } else if (value instanceof Float) {
-                        statement.setFloat(key, (Float) value);
-                    } else if (value instanceof Long) {
-                        statement.setLong(key, (Long) value);
-                    } else if (value instanceof Byte) {
-                        statement.setByte(key, (Byte) value);
-                    } else if (value instanceof Boolean) {
-                        statement.setBoolean(key, (Boolean) value);
-                    }
-                } catch (SQLException e) {
-                    System.out.println(e.getMessage());
+            connection = pool.getConnection();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        PreparedStatement statement = null;
+        try {
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(DBManager.STREAM_FETCH_SIZE);
+            params.bind(new ParameterBinder().reset(statement));
+            Cursor<T> cursor = new Cursor<>(pool, connection, statement, statement.executeQuery(), mapper);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                if (statement != null) {
+                    statement.close();
                 }
-            });
-            return statement.executeQuery();
+            } finally {
+                pool.returnConnection(connection);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Static generic method for accepting SQL script with an IN clause and reading the rows of many ID numbers.
+     * The SQL script holds a single %s, replaced by the placeholders of up to MULTI_GET_CHUNK_SIZE ID numbers.
+     * Duplicate ID numbers are read once. Each IN list is padded to the next of MULTI_GET_IN_LIST_SIZES by repeating
+     * its last ID number, so only a few distinct statements reach the StatementCache.
+     * When there is more than one chunk, the chunks are read in parallel, each on its own pooled Connection, by up to
+     * MULTI_GET_PARALLELISM threads. The chunks are routed as reads of the calling thread, so they read from the
+     * primary while the caller is in its read-your-writes window.
+     *
+     * @param sql    SQL script for execution, with %s in place of the IN list
+     * @param ids    ID numbers to read
+     * @param mapper Converts each row into an object
+     * @param <T>    Type of the mapped rows
+     * @return List of mapped rows, in no particular order
+     * @throws SQLException Thrown if SQL statement of any chunk not executed
+     */
+    public static <T> List<T> runQueryForListByIds(String sql, Collection<Integer> ids, RowMapper<T> mapper) throws SQLException {
+        List<Integer> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (distinctIds.size() <= DBManager.MULTI_GET_CHUNK_SIZE) {
+            return runQueryForListByChunk(sql, distinctIds, mapper, ConnectionRouter.getInstance().forRead());
+        }
+        Supplier<ConnectionPool> readRoute = ConnectionRouter.getInstance().captureReadRoute();
+        List<Future<List<T>>> chunks = new ArrayList<>();
+        for (int start = 0; start < distinctIds.size(); start += DBManager.MULTI_GET_CHUNK_SIZE) {
+            List<Integer> chunk = distinctIds.subList(start, Math.min(distinctIds.size(), start + DBManager.MULTI_GET_CHUNK_SIZE));
+            chunks.add(MULTI_GET_EXECUTOR.submit(() -> runQueryForListByChunk(sql, chunk, mapper, readRoute.get())));
+        }
+        List<T> rows = new ArrayList<>(distinctIds.size());
+        try {
+            for (Future<List<T>> chunk : chunks) {
+                rows.addAll(chunk.get());
+            }
+            return rows;
         } catch (InterruptedException e) {
-            System.out.println("Error: " + e.getMessage());
-            return null;
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a chunk", e);
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Chunk failed", e.getCause());
+        }
+    }
+
+    /**
+     * Reads the rows of one chunk of ID numbers, padding its IN list to the next of MULTI_GET_IN_LIST_SIZES.
+     *
+     * @param sql    SQL script for execution, with %s in place of the IN list
+     * @param chunk  Distinct ID numbers, at most MULTI_GET_CHUNK_SIZE
+     * @param mapper Converts each row into an object
+     * @param pool   Pool to borrow the Connection from
+     * @param <T>    Type of the mapped rows
+     * @return List of mapped rows
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    private static <T> List<T> runQueryForListByChunk(String sql, List<Integer> chunk, RowMapper<T> mapper, ConnectionPool pool) throws SQLException {
+        List<Integer> paddedIds = padInList(chunk);
+        return readQuery(pool, String.format(sql, placeholders(paddedIds.size())), idBinding(paddedIds), result -> {
+            List<T> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(mapper.mapRow(result));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Pads the values of an IN list to the next of MULTI_GET_IN_LIST_SIZES by repeating its last value, so only a few
+     * distinct statements reach the StatementCache. Lists longer than the largest size are padded to a multiple of it.
+     * Repeated values do not change the result of an IN clause.
+     *
+     * @param values Values of the IN list, at least 1
+     * @param <T>    Type of the values
+     * @return New list holding the values followed by the padding
+     */
+    public static <T> List<T> padInList(List<T> values) {
+        int[] listSizes = DBManager.MULTI_GET_IN_LIST_SIZES;
+        int largest = listSizes[listSizes.length - 1];
+        int size = (values.size() + largest - 1) / largest * largest;
+        for (int listSize : listSizes) {
+            if (listSize >= values.size()) {
+                size = listSize;
+                break;
+            }
+        }
+        List<T> padded = new ArrayList<>(size);
+        padded.addAll(values);
+        while (padded.size() < size) {
+            padded.add(values.get(values.size() - 1));
+        }
+        return padded;
+    }
+
+    /**
+     * Builds a parenthesized list of parameter placeholders for an IN clause, e.g. "(?, ?, ?)".
+     *
+     * @param count Number of placeholders, at least 1
+     * @return Placeholder list
+     */
+    public static String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 3 + 1).append('(');
+        for (int counter = 0; counter < count; counter++) {
+            builder.append(counter == 0 ? "?" : ", ?");
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Builds a Binding setting a list of ID numbers, in order, as int parameters.
+     *
+     * @param ids ID numbers to bind
+     * @return Binding of the ID numbers
+     */
+    private static Binding idBinding(List<Integer> ids) {
+        return binder -> {
+            for (Integer id : ids) {
+                binder.bindInt(id);
+            }
+        };
+    }
+
+    /**
+     * Executes a query and hands its ResultSet to a reader, closing the ResultSet before the Connection is returned.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @param reader Reads the needed data out of the ResultSet
+     * @param <T>    Type of the value read
+     * @return Value produced by the reader
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    private static <T> T readQuery(String sql, Binding params, ResultSetReader<T> reader) throws SQLException {
+        return readQuery(ConnectionRouter.getInstance().forRead(), sql, params, reader);
+    }
+
+    /**
+     * Executes a query on a Connection of a given pool and hands its ResultSet to a reader, closing the ResultSet
+     * before the Connection is returned.
+     *
+     * @param pool   Pool to borrow the Connection from
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @param reader Reads the needed data out of the ResultSet
+     * @param <T>    Type of the value read
+     * @return Value produced by the reader
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    private static <T> T readQuery(ConnectionPool pool, String sql, Binding params, ResultSetReader<T> reader) throws SQLException {
+        Connection connection = null;
+        try {
+            connection = pool.getConnection();
+            StatementCache statementCache = pool.getStatementCache(connection);
+            PreparedStatement statement = statementCache.prepare(sql);
+            params.bind(statementCache.binderFor(statement));
+            try (ResultSet result = statement.executeQuery()) {
+                return reader.read(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
         } finally {
-            ConnectionPool.getInstance().returnConnection(connection);
+            pool.returnConnection(connection);
+        }
+    }
+
+    /**
+     * Reads a value out of an open ResultSet.
+     *
+     * @param <T> Type of the value read
+     */
+    @FunctionalInterface
+    private interface ResultSetReader<T> {
+        T read(ResultSet result) throws SQLException;
+    }
+
+    /**
+     * Spliterator reading one row per advance from an open ResultSet.
+     * Closes the ResultSet and statement and returns the Connection once the rows run out, reading fails or close() is called.
+     *
+     * @param <T> Type of the mapped rows
+     */
+    private static class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+        private final ConnectionPool pool;
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private final ResultSet result;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        private Cursor(ConnectionPool pool, Connection connection, PreparedStatement statement, ResultSet result, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.pool = pool;
+            this.connection = connection;
+            this.statement = statement;
+            this.result = result;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (!result.next()) {
+                    close();
+                    return false;
+                }
+                action.accept(mapper.mapRow(result));
+                return true;
+            } catch (SQLException e) {
+                close();
+                throw new DBStreamException(e);
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                result.close();
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println("Failed to close cursor: " + e.getMessage());
+            } finally {
+                pool.returnConnection(connection);
+            }
         }
     }
 }
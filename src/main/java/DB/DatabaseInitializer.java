@@ -4,11 +4,15 @@ import Exceptions.DBException;
 import Exceptions.DBInitException;
 
 import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Contains all methods necessary for database initialization.
  */
 public class DatabaseInitializer {
+    private static final List<Runnable> tablesCreatedListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Constructs new DatabaseInitializer
      */
@@ -16,18 +20,26 @@ public class DatabaseInitializer {
     }
 
     /**
-     * Static method for creating MySQL database and Companies, Customers, Coupons and Customer_To_Coupons tables.
+     * Static method for creating MySQL database and bringing its tables to the latest schema version through SchemaMigrator.
+     * Runs a single query and no DDL when the schema is already up to date.
      */
     public static void createTables() {
         try {
-            createSchema();
-            createCompaniesTable();
-            createCustomersTable();
-            createCouponsTable();
-            createCustomerToCouponTable();
+            SchemaMigrator.migrate();
         } catch (DBInitException | DBException e) {
             System.out.println(e.getMessage());
         }
+        tablesCreatedListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Static method for registering a listener run after every createTables call, e.g. to drop in-memory state that
+     * may belong to a previous, dropped schema.
+     *
+     * @param listener Listener to run
+     */
+    public static void addTablesCreatedListener(Runnable listener) {
+        tablesCreatedListeners.add(listener);
     }
 
     /**
@@ -35,7 +47,7 @@ public class DatabaseInitializer {
      *
      * @throws DBInitException Thrown if failed to create database
      */
-    private static void createSchema() throws DBInitException {
+    static void createSchema() throws DBInitException {
         try {
             System.out.println("Created schema: " + DBTools.runQuery(DBManager.CREATE_SCHEMA));
         } catch (SQLException e) {
@@ -94,4 +106,4 @@ public class DatabaseInitializer {
             throw new DBException("Failed to create \"customer_to_coupon\" table");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package DB;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RowMapper reading its columns by index instead of by name. Column indices are resolved from the ResultSetMetaData
+ * once per ResultSet, and kept per column layout, so a mapper shared by several queries resolves each layout once.
+ * The ResultSet last mapped is remembered per thread, so concurrent queries do not resolve each other's layouts.
+ * Columns are matched by label, case-insensitively, taking the first match as ResultSet.findColumn does.
+ * Instances are thread-safe and meant to be created once and reused.
+ *
+ * @param <T> Type of object produced for each row
+ */
+public abstract class IndexedRowMapper<T> implements RowMapper<T> {
+    private final String[] columns;
+    private final Map<String, int[]> layouts = new ConcurrentHashMap<>();
+    private final ThreadLocal<Resolved> last = ThreadLocal.withInitial(() -> new Resolved(null, null));
+
+    /**
+     * Constructs an IndexedRowMapper for a set of columns.
+     *
+     * @param columns Labels of the columns read by the mapper, in the order of the index array handed to mapRow
+     */
+    protected IndexedRowMapper(String... columns) {
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Converts the current row of the ResultSet, resolving the column indices first if the ResultSet is new.
+     *
+     * @param result ResultSet positioned on the row to convert
+     * @return Object built from the row
+     * @throws SQLException Thrown if failed to get parameters or a column is missing
+     */
+    @Override
+    public final T mapRow(ResultSet result) throws SQLException {
+        Resolved resolved = last.get();
+        if (resolved.result.get() != result) {
+            resolved = new Resolved(result, resolve(result.getMetaData()));
+            last.set(resolved);
+        }
+        return mapRow(result, resolved.indices);
+    }
+
+    /**
+     * Converts the current row of the ResultSet by column index. Must not move the cursor.
+     *
+     * @param result  ResultSet positioned on the row to convert
+     * @param indices Index of each column, in the order given to the constructor
+     * @return Object built from the row
+     * @throws SQLException Thrown if failed to get parameters
+     */
+    protected abstract T mapRow(ResultSet result, int[] indices) throws SQLException;
+
+    /**
+     * Returns the column indices for the layout of a ResultSet, resolving them on first sight of the layout.
+     *
+     * @param metaData ResultSetMetaData of the ResultSet
+     * @return Index of each column, in the order given to the constructor
+     * @throws SQLException Thrown if failed to read the metadata or a column is missing
+     */
+    private int[] resolve(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        for (int column = 1; column <= columnCount; column++) {
+            labels[column - 1] = metaData.getColumnLabel(column);
+        }
+        String layout = String.join(",", labels);
+        int[] indices = layouts.get(layout);
+        if (indices != null) {
+            return indices;
+        }
+        indices = new int[columns.length];
+        for (int counter = 0; counter < columns.length; counter++) {
+            indices[counter] = indexOf(labels, columns[counter]);
+        }
+        layouts.put(layout, indices);
+        return indices;
+    }
+
+    /**
+     * Finds the 1-based index of the first column with a label.
+     *
+     * @param labels Column labels of the ResultSet
+     * @param column Label to find
+     * @return Column index
+     * @throws SQLException Thrown if no column has the label
+     */
+    private static int indexOf(String[] labels, String column) throws SQLException {
+        for (int counter = 0; counter < labels.length; counter++) {
+            if (labels[counter].equalsIgnoreCase(column)) {
+                return counter + 1;
+            }
+        }
+        throw new SQLException("Column '" + column + "' not found");
+    }
+
+    /**
+     * Column indices resolved for a ResultSet. The ResultSet is weakly referenced, so it is not kept alive after use.
+     */
+    private static class Resolved {
+        private final WeakReference<ResultSet> result;
+        private final int[] indices;
+
+        /**
+         * Constructs a Resolved for a ResultSet.
+         *
+         * @param result  ResultSet the indices were resolved for
+         * @param indices Resolved column indices
+         */
+        private Resolved(ResultSet result, int[] indices) {
+            this.result = new WeakReference<>(result);
+            this.indices = indices;
+        }
+    }
+}
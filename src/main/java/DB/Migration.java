@@ -0,0 +1,162 @@
+package DB;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A single versioned schema change applied by SchemaMigrator, consisting of SQL statements run in order.
+ * An optional skip condition lets a migration recognise databases that already have its change, e.g. ones created
+ * before versioning existed. The checksum covers the statements, so a migration edited after it was applied is detected.
+ * MySQL commits every DDL statement on its own, so a migration that failed halfway keeps its earlier statements.
+ * Statements are therefore written to be run again, or given their own skip condition, so the migration can be re-run.
+ */
+public final class Migration {
+    private final int version;
+    private final String description;
+    private final String skipIfSql;
+    private final List<String> statements;
+    private final List<String> statementSkipIfSql;
+    private final long checksum;
+
+    /**
+     * Constructs a Migration.
+     *
+     * @param version     Version number, unique and increasing
+     * @param description Short description of the change
+     * @param skipIfSql   COUNT query returning a non-zero value if the change is already present, or null to always apply
+     * @param statements  SQL statements of the change, in order
+     */
+    public Migration(int version, String description, String skipIfSql, String... statements) {
+        this(version, description, skipIfSql, List.of(statements), Collections.nCopies(statements.length, null));
+    }
+
+    /**
+     * Constructs a Migration whose statements each have their own skip condition.
+     *
+     * @param version     Version number, unique and increasing
+     * @param description Short description of the change
+     * @param steps       Statements with their skip conditions, built by step(), in order
+     */
+    public Migration(int version, String description, String[]... steps) {
+        this(version, description, null, statementsOf(steps, 1), statementsOf(steps, 0));
+    }
+
+    /**
+     * Constructs a Migration and computes its checksum. The checksum covers the statements only, so adding a skip
+     * condition to an applied Migration does not change it.
+     *
+     * @param version            Version number, unique and increasing
+     * @param description        Short description of the change
+     * @param skipIfSql          COUNT query returning a non-zero value if the change is already present, or null
+     * @param statements         SQL statements of the change, in order
+     * @param statementSkipIfSql Skip condition of each statement, or null entries to always run it
+     */
+    private Migration(int version, String description, String skipIfSql, List<String> statements, List<String> statementSkipIfSql) {
+        this.version = version;
+        this.description = description;
+        this.skipIfSql = skipIfSql;
+        this.statements = List.copyOf(statements);
+        this.statementSkipIfSql = Collections.unmodifiableList(new ArrayList<>(statementSkipIfSql));
+        CRC32 crc = new CRC32();
+        for (String statement : statements) {
+            crc.update(statement.getBytes(StandardCharsets.UTF_8));
+            crc.update('\n');
+        }
+        this.checksum = crc.getValue();
+    }
+
+    /**
+     * Builds a step of a Migration whose statements each have their own skip condition.
+     *
+     * @param skipIfSql COUNT query returning a non-zero value if the statement's change is already present, or null to
+     *                  always run the statement
+     * @param statement SQL statement
+     * @return Pair of skip condition and statement
+     */
+    public static String[] step(String skipIfSql, String statement) {
+        return new String[]{skipIfSql, statement};
+    }
+
+    /**
+     * Picks one column out of the steps given to the Migration.
+     *
+     * @param steps  Pairs of skip condition and SQL statement
+     * @param column 0 -> skip conditions, 1 -> statements
+     * @return Column values, in order
+     */
+    private static List<String> statementsOf(String[][] steps, int column) {
+        List<String> values = new ArrayList<>(steps.length);
+        for (String[] step : steps) {
+            values.add(step[column]);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the version number of the Migration.
+     *
+     * @return Version number
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the description of the Migration.
+     *
+     * @return Description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the COUNT query deciding whether the change is already present.
+     *
+     * @return Skip condition, or null if the Migration always applies
+     */
+    public String getSkipIfSql() {
+        return skipIfSql;
+    }
+
+    /**
+     * Returns the SQL statements of the Migration.
+     *
+     * @return Statements in execution order
+     */
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    /**
+     * Returns the COUNT query deciding whether the change of a single statement is already present.
+     *
+     * @param index Index of the statement
+     * @return Skip condition, or null if the statement always runs
+     */
+    public String getStatementSkipIfSql(int index) {
+        return statementSkipIfSql.get(index);
+    }
+
+    /**
+     * Returns the CRC32 checksum of the statements.
+     *
+     * @return Checksum
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Returns String description of Migration attributes: version, description.
+     *
+     * @return String description of Migration attributes
+     */
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
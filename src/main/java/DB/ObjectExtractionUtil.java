@@ -8,12 +8,69 @@ import Beans.Customer;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Class containing static methods for extracting Company, Coupon and Customer classes from MySQL ResultSet
+ * Class containing static methods for extracting Company, Coupon and Customer classes from MySQL ResultSet.
+ * Columns are read by index through shared IndexedRowMappers, which resolve the column names once per ResultSet.
  */
 public class ObjectExtractionUtil {
+    private static final Map<String, Category> CATEGORIES = new HashMap<>();
+
+    static {
+        for (Category category : Category.values()) {
+            CATEGORIES.put(category.name(), category);
+        }
+    }
+
+    private static final IndexedRowMapper<Company> COMPANY_MAPPER = new IndexedRowMapper<>("id", "name", "email") {
+        @Override
+        protected Company mapRow(ResultSet result, int[] indices) throws SQLException {
+            return new Company(
+                    result.getInt(indices[0]),
+                    result.getString(indices[1]),
+                    result.getString(indices[2])
+            );
+        }
+    };
+
+    private static final IndexedRowMapper<Coupon> COUPON_MAPPER = new IndexedRowMapper<>("coupon_id", "company_id",
+            "amount", "price", "category", "title", "description", "image", "start_date", "end_date") {
+        @Override
+        protected Coupon mapRow(ResultSet result, int[] indices) throws SQLException {
+            int couponId = result.getInt(indices[0]);
+            if (couponId == 0 && result.wasNull()) {
+                return null;
+            }
+            return new Coupon(
+                    couponId,
+                    result.getInt(indices[1]),
+                    result.getInt(indices[2]),
+                    result.getDouble(indices[3]),
+                    toCategory(result.getString(indices[4])),
+                    result.getString(indices[5]),
+                    result.getString(indices[6]),
+                    result.getString(indices[7]),
+                    result.getDate(indices[8]),
+                    result.getDate(indices[9])
+            );
+        }
+    };
+
+    private static final IndexedRowMapper<Customer> CUSTOMER_MAPPER = new IndexedRowMapper<>("customer_id",
+            "first_name", "last_name", "email") {
+        @Override
+        protected Customer mapRow(ResultSet result, int[] indices) throws SQLException {
+            return new Customer(
+                    result.getInt(indices[0]),
+                    result.getString(indices[1]),
+                    result.getString(indices[2]),
+                    result.getString(indices[3])
+            );
+        }
+    };
 
     /**
      * Static method for extracting "Company" class from MySQL ResultSet, without setting coupons list.
@@ -24,11 +81,7 @@ public class ObjectExtractionUtil {
      * @throws SQLException Thrown if failed to get parameters
      */
     public static Company resultSetToCompany(ResultSet result) throws SQLException {
-        return new Company(
-                result.getInt("id"),
-                result.getString("name"),
-                result.getString("email")
-        );
+        return COMPANY_MAPPER.mapRow(result);
     }
 
     /**
@@ -54,18 +107,22 @@ public class ObjectExtractionUtil {
      * @throws SQLException Thrown if failed to get parameters
      */
     public static Coupon resultSetToCoupon(ResultSet result) throws SQLException {
-        return new Coupon(
-                result.getInt("coupon_id"),
-                result.getInt("company_id"),
-                result.getInt("amount"),
-                result.getDouble("price"),
-                Category.valueOf(result.getString("category")),
-                result.getString("title"),
-                result.getString("description"),
-                result.getString("image"),
-                result.getDate("start_date"),
-                result.getDate("end_date")
-        );
+        Coupon coupon = COUPON_MAPPER.mapRow(result);
+        if (coupon == null) {
+            throw new SQLException("Coupon ID number is null");
+        }
+        return coupon;
+    }
+
+    /**
+     * Static method for extracting "Coupon" class from a MySQL ResultSet row of an outer join, which may have no Coupon.
+     *
+     * @param result ResultSet from MySQL
+     * @return new Coupon, or null if the row has no Coupon
+     * @throws SQLException Thrown if failed to get parameters
+     */
+    public static Coupon resultSetToCouponIfPresent(ResultSet result) throws SQLException {
+        return COUPON_MAPPER.mapRow(result);
     }
 
     /**
@@ -77,12 +134,7 @@ public class ObjectExtractionUtil {
      * @throws SQLException Thrown if failed to get parameters
      */
     public static Customer resultSetToCustomer(ResultSet result) throws SQLException {
-        return new Customer(
-                result.getInt("customer_id"),
-                result.getString("first_name"),
-                result.getString("last_name"),
-                result.getString("email")
-        );
+        return CUSTOMER_MAPPER.mapRow(result);
     }
 
     /**
@@ -99,4 +151,19 @@ public class ObjectExtractionUtil {
         customer.setCoupons(customerCoupons);
         return customer;
     }
-}
\ No newline at end of file
+
+    /**
+     * Converts a category column value to its Category through a lookup table built once from Category.values().
+     *
+     * @param name Category name as stored in MySQL
+     * @return Category of the name
+     * @throws SQLException Thrown if the name is not a Category
+     */
+    private static Category toCategory(String name) throws SQLException {
+        Category category = CATEGORIES.get(name);
+        if (category == null) {
+            throw new SQLException("Unknown category: " + name);
+        }
+        return category;
+    }
+}
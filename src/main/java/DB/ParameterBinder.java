@@ -0,0 +1,105 @@
+package DB;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Sets the parameters of a PreparedStatement one after another, starting at position 1.
+ * Values are passed straight to the typed PreparedStatement setters, without boxing or intermediate collections.
+ * One instance is reused for every statement of a pooled Connection.
+ */
+public final class ParameterBinder {
+    private PreparedStatement statement;
+    private int index;
+
+    /**
+     * Constructs a ParameterBinder that is not yet attached to a statement.
+     */
+    ParameterBinder() {
+    }
+
+    /**
+     * Attaches the binder to a statement and moves back to the first parameter.
+     *
+     * @param statement PreparedStatement to set parameters on
+     * @return this ParameterBinder
+     */
+    ParameterBinder reset(PreparedStatement statement) {
+        this.statement = statement;
+        this.index = 1;
+        return this;
+    }
+
+    /**
+     * Sets the next parameter to an int value.
+     *
+     * @param value Parameter value
+     * @return this ParameterBinder
+     * @throws SQLException Thrown if failed to set the parameter
+     */
+    public ParameterBinder bindInt(int value) throws SQLException {
+        statement.setInt(index++, value);
+        return this;
+    }
+
+    /**
+     * Sets the next parameter to a long value.
+     *
+     * @param value Parameter value
+     * @return this ParameterBinder
+     * @throws SQLException Thrown if failed to set the parameter
+     */
+    public ParameterBinder bindLong(long value) throws SQLException {
+        statement.setLong(index++, value);
+        return this;
+    }
+
+    /**
+     * Sets the next parameter to a double value.
+     *
+     * @param value Parameter value
+     * @return this ParameterBinder
+     * @throws SQLException Thrown if failed to set the parameter
+     */
+    public ParameterBinder bindDouble(double value) throws SQLException {
+        statement.setDouble(index++, value);
+        return this;
+    }
+
+    /**
+     * Sets the next parameter to a String value.
+     *
+     * @param value Parameter value
+     * @return this ParameterBinder
+     * @throws SQLException Thrown if failed to set the parameter
+     */
+    public ParameterBinder bindString(String value) throws SQLException {
+        statement.setString(index++, value);
+        return this;
+    }
+
+    /**
+     * Sets the next parameter to a Date value.
+     *
+     * @param value Parameter value
+     * @return this ParameterBinder
+     * @throws SQLException Thrown if failed to set the parameter
+     */
+    public ParameterBinder bindDate(Date value) throws SQLException {
+        statement.setDate(index++, value);
+        return this;
+    }
+
+    /**
+     * Sets the next parameter to the name of an enum constant, as stored in VARCHAR columns such as "category".
+     *
+     * @param value Parameter value
+     * @return this ParameterBinder
+     * @throws SQLException Thrown if failed to set the parameter
+     */
+    public ParameterBinder bindEnum(Enum<?> value) throws SQLException {
+        statement.setString(index++, value.name());
+        return this;
+    }
+}
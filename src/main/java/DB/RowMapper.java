@@ -0,0 +1,22 @@
+package DB;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Functional interface for converting the current row of a MySQL ResultSet into an object.
+ * Called by DBTools while the Connection is still borrowed, once per row.
+ *
+ * @param <T> Type of object produced for each row
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Converts the current row of the ResultSet. Must not move the cursor.
+     *
+     * @param result ResultSet positioned on the row to convert
+     * @return Object built from the row
+     * @throws SQLException Thrown if failed to get parameters
+     */
+    T mapRow(ResultSet result) throws SQLException;
+}
@@ -0,0 +1,153 @@
+package DB;
+
+import Exceptions.DBException;
+import Exceptions.DBInitException;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Brings the MySQL schema up to date by applying versioned Migrations in order.
+ * Applied versions and their checksums are recorded in the "schema_version" table. When the database is already at the
+ * latest version, start-up costs a single query and runs no DDL.
+ * Migrations are not atomic: MySQL commits each DDL statement implicitly, so a Migration that fails halfway keeps the
+ * statements run before the failure and is not recorded. Its statements are idempotent or skipped when their change is
+ * already present, so the next start-up runs it again from where it failed.
+ */
+public class SchemaMigrator {
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create companies, customers, coupons and customer_to_coupon tables", null,
+                    DBManager.CREATE_TABLE_COMPANIES,
+                    DBManager.CREATE_TABLE_CUSTOMERS,
+                    DBManager.CREATE_TABLE_COUPONS,
+                    DBManager.CREATE_TABLE_CUSTOMER_TO_COUPON),
+            new Migration(2, "Key customer_to_coupon by (id_customer, id_coupon)", DBManager.COUNT_CUSTOMER_TO_COUPON_PRIMARY_KEY,
+                    DBManager.DROP_CUSTOMER_TO_COUPON_DISTINCT_COPY,
+                    DBManager.CREATE_CUSTOMER_TO_COUPON_DISTINCT_COPY,
+                    DBManager.DELETE_ALL_CUSTOMER_TO_COUPON,
+                    DBManager.INSERT_CUSTOMER_TO_COUPON_FROM_DISTINCT_COPY,
+                    DBManager.DROP_CUSTOMER_TO_COUPON_DISTINCT_COPY,
+                    DBManager.ADD_CUSTOMER_TO_COUPON_PRIMARY_KEY),
+            new Migration(3, "Create hot_inventory table", null,
+                    DBManager.CREATE_TABLE_HOT_INVENTORY),
+            new Migration(4, "Add lookup indexes on companies, customers and coupons",
+                    Migration.step(DBManager.COUNT_COMPANIES_LOOKUP_INDEXES, DBManager.ADD_COMPANIES_LOOKUP_INDEXES),
+                    Migration.step(DBManager.COUNT_CUSTOMERS_LOOKUP_INDEXES, DBManager.ADD_CUSTOMERS_LOOKUP_INDEXES),
+                    Migration.step(DBManager.COUNT_COUPONS_LOOKUP_INDEXES, DBManager.ADD_COUPONS_LOOKUP_INDEXES)),
+            new Migration(5, "Count units sold of hot coupons in hot_inventory",
+                    Migration.step(DBManager.COUNT_HOT_INVENTORY_SOLD_COLUMN, DBManager.ADD_HOT_INVENTORY_SOLD_COLUMN),
+                    Migration.step(null, DBManager.INIT_HOT_INVENTORY_SOLD))
+    );
+
+    /**
+     * Constructs new SchemaMigrator
+     */
+    public SchemaMigrator() {
+    }
+
+    /**
+     * Static method for bringing the schema to the latest Migration version.
+     * Verifies the checksums of applied Migrations, then applies the pending ones in version order.
+     *
+     * @throws DBInitException Thrown if failed to create the schema or the "schema_version" table
+     * @throws DBException     Thrown if an applied Migration was changed or unknown, or a pending Migration failed
+     */
+    public static void migrate() throws DBInitException, DBException {
+        List<long[]> applied = readAppliedVersions();
+        if (applied != null && verify(applied) == MIGRATIONS.size()) {
+            System.out.println("Schema up to date at version " + latestVersion());
+            return;
+        }
+        DatabaseInitializer.createSchema();
+        try {
+            System.out.println("Created \"schema_version\" table: " + DBTools.runQuery(DBManager.CREATE_TABLE_SCHEMA_VERSION));
+        } catch (SQLException e) {
+            throw new DBInitException("Failed to create \"schema_version\" table");
+        }
+        applied = readAppliedVersions();
+        if (applied == null) {
+            throw new DBInitException("Failed to read \"schema_version\" table");
+        }
+        for (Migration migration : MIGRATIONS.subList(verify(applied), MIGRATIONS.size())) {
+            apply(migration);
+        }
+    }
+
+    /**
+     * Returns the version of the last known Migration.
+     *
+     * @return Latest schema version
+     */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).getVersion();
+    }
+
+    /**
+     * Reads the applied versions and their checksums from the primary database.
+     *
+     * @return Pairs of version and checksum in version order, or null if the schema or the table does not exist yet
+     */
+    private static List<long[]> readAppliedVersions() {
+        try {
+            return DBTools.runInTransaction(transaction -> transaction.queryForList(DBManager.READ_SCHEMA_VERSIONS, Binding.NONE,
+                    result -> new long[]{result.getInt(1), result.getLong(2)}));
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks that the applied versions are a prefix of the known Migrations with unchanged checksums.
+     *
+     * @param applied Pairs of version and checksum in version order
+     * @return Number of applied Migrations
+     * @throws DBException Thrown if an applied version is unknown or its checksum differs
+     */
+    private static int verify(List<long[]> applied) throws DBException {
+        for (int index = 0; index < applied.size(); index++) {
+            long[] row = applied.get(index);
+            if (index >= MIGRATIONS.size() || MIGRATIONS.get(index).getVersion() != row[0]) {
+                throw new DBException("Database schema version " + row[0] + " is unknown to this program");
+            }
+            if (MIGRATIONS.get(index).getChecksum() != row[1]) {
+                throw new DBException("Checksum mismatch for applied migration " + MIGRATIONS.get(index));
+            }
+        }
+        return applied.size();
+    }
+
+    /**
+     * Applies a single Migration and records its version, unless its skip condition shows the change is already present,
+     * in which case only the version is recorded. Statements whose own skip condition shows their change is already
+     * present, e.g. after an earlier attempt failed halfway, are not run again.
+     *
+     * @param migration Migration to apply
+     * @throws DBException Thrown if a statement of the Migration failed
+     */
+    private static void apply(Migration migration) throws DBException {
+        Binding versionParams = binder -> binder
+                .bindInt(migration.getVersion())
+                .bindString(migration.getDescription())
+                .bindLong(migration.getChecksum());
+        try {
+            boolean skipped = DBTools.runInTransaction(transaction -> {
+                boolean present = migration.getSkipIfSql() != null
+                        && transaction.queryForInt(migration.getSkipIfSql(), Binding.NONE) != 0;
+                if (!present) {
+                    List<String> statements = migration.getStatements();
+                    for (int index = 0; index < statements.size(); index++) {
+                        String statementSkipIfSql = migration.getStatementSkipIfSql(index);
+                        if (statementSkipIfSql == null || transaction.queryForInt(statementSkipIfSql, Binding.NONE) == 0) {
+                            transaction.update(statements.get(index), Binding.NONE);
+                        }
+                    }
+                }
+                transaction.update(DBManager.CREATE_SCHEMA_VERSION, versionParams);
+                return present;
+            });
+            System.out.println((skipped ? "Recorded already present migration: " : "Applied migration: ") + migration);
+        } catch (SQLException e) {
+            throw new DBException("Failed to apply migration " + migration + ": " + e.getMessage());
+        }
+    }
+}
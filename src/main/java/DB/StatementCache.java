@@ -0,0 +1,116 @@
+package DB;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least-recently-used cache of PreparedStatements for a single pooled Connection, keyed by SQL script.
+ * Statements pushed out of the cache are closed. Not thread-safe: a Connection is only used by the thread that borrowed it.
+ */
+public class StatementCache {
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static final LongAdder evictions = new LongAdder();
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements;
+    private final ParameterBinder binder = new ParameterBinder();
+
+    /**
+     * Constructs an empty StatementCache for a Connection.
+     *
+     * @param connection MySQL Connection the statements are prepared on
+     * @param capacity   Maximum number of statements kept open
+     */
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= capacity) {
+                    return false;
+                }
+                evictions.increment();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a PreparedStatement for the SQL script, reusing the cached one if it is still open.
+     * Parameters left over from the previous use are cleared. The caller must not close the returned statement.
+     *
+     * @param sql SQL script to prepare
+     * @return PreparedStatement ready for parameter binding
+     * @throws SQLException Thrown if failed to prepare the statement
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits.increment();
+            statement.clearParameters();
+            return statement;
+        }
+        misses.increment();
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+        return statement;
+    }
+
+    /**
+     * Returns the Connection's ParameterBinder attached to a statement, positioned on the first parameter.
+     *
+     * @param statement PreparedStatement to set parameters on
+     * @return ParameterBinder for the statement
+     */
+    ParameterBinder binderFor(PreparedStatement statement) {
+        return binder.reset(statement);
+    }
+
+    /**
+     * Closes every cached statement. To be used before the owning Connection is closed.
+     */
+    void close() {
+        statements.values().forEach(StatementCache::closeQuietly);
+        statements.clear();
+    }
+
+    /**
+     * Returns how many prepare() calls were served from a cache, across all Connections.
+     *
+     * @return Number of cache hits
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns how many prepare() calls had to prepare a new statement, across all Connections.
+     *
+     * @return Number of cache misses
+     */
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns how many statements were closed to make room for newer ones, across all Connections.
+     *
+     * @return Number of evicted statements
+     */
+    public static long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.out.println("Failed to close statement: " + e.getMessage());
+        }
+    }
+}
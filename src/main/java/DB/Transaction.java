@@ -0,0 +1,119 @@
+package DB;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Statements of a single MySQL transaction, all run on the one Connection borrowed by DBTools.runInTransaction.
+ * Statements are taken from the Connection's StatementCache. Only valid inside the TransactionWork it was passed to.
+ */
+public final class Transaction {
+    private final StatementCache statementCache;
+    private boolean rollbackOnly;
+
+    /**
+     * Constructs a Transaction over a borrowed Connection that already has auto-commit turned off.
+     *
+     * @param statementCache StatementCache of the borrowed Connection
+     */
+    Transaction(StatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    /**
+     * Executes an INSERT, UPDATE or DELETE statement.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @return Number of rows affected
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public int update(String sql, Binding params) throws SQLException {
+        return prepare(sql, params).executeUpdate();
+    }
+
+    /**
+     * Executes a query and returns every row converted by a RowMapper.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @param mapper Converts each row into an object
+     * @param <T>    Type of the mapped rows
+     * @return List of mapped rows, empty if the query returned no rows
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public <T> List<T> queryForList(String sql, Binding params, RowMapper<T> mapper) throws SQLException {
+        try (ResultSet result = prepare(sql, params).executeQuery()) {
+            List<T> rows = new ArrayList<>();
+            while (result.next()) {
+                rows.add(mapper.mapRow(result));
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Executes a query and returns its first row converted by a RowMapper.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @param mapper Converts the row into an object
+     * @param <T>    Type of the mapped row
+     * @return Mapped first row, or null if the query returned no rows
+     * @throws SQLException Thrown if SQL statement not executed
+     */
+    public <T> T queryForObject(String sql, Binding params, RowMapper<T> mapper) throws SQLException {
+        try (ResultSet result = prepare(sql, params).executeQuery()) {
+            return result.next() ? mapper.mapRow(result) : null;
+        }
+    }
+
+    /**
+     * Executes a query and returns the first column of its first row as int. Meant for COUNT(*) queries.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @return int value of the first column
+     * @throws SQLException Thrown if SQL statement not executed or returned no rows
+     */
+    public int queryForInt(String sql, Binding params) throws SQLException {
+        Integer value = queryForObject(sql, params, result -> result.getInt(1));
+        if (value == null) {
+            throw new SQLException("Query returned no rows: " + sql);
+        }
+        return value;
+    }
+
+    /**
+     * Marks the transaction to be rolled back instead of committed once the TransactionWork returns.
+     */
+    public void setRollbackOnly() {
+        rollbackOnly = true;
+    }
+
+    /**
+     * Returns whether the transaction was marked to be rolled back.
+     *
+     * @return true -> roll back, false -> commit
+     */
+    boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    /**
+     * Takes a statement from the StatementCache and binds its parameters.
+     *
+     * @param sql    SQL script for execution
+     * @param params parameter input for SQL script
+     * @return Statement ready to execute
+     * @throws SQLException Thrown if failed to prepare the statement or set a parameter
+     */
+    private PreparedStatement prepare(String sql, Binding params) throws SQLException {
+        PreparedStatement statement = statementCache.prepare(sql);
+        params.bind(statementCache.binderFor(statement));
+        return statement;
+    }
+}
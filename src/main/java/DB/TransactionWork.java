@@ -0,0 +1,20 @@
+package DB;
+
+import java.sql.SQLException;
+
+/**
+ * Functional interface for the statements run inside a single MySQL transaction by DBTools.runInTransaction.
+ *
+ * @param <T> Type of the value produced by the transaction
+ */
+@FunctionalInterface
+public interface TransactionWork<T> {
+    /**
+     * Runs the statements of the transaction. Throwing rolls the transaction back.
+     *
+     * @param transaction Transaction to run the statements on
+     * @return Value produced by the transaction
+     * @throws SQLException Thrown if a statement was not executed
+     */
+    T execute(Transaction transaction) throws SQLException;
+}
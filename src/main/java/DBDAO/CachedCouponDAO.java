@@ -0,0 +1,550 @@
+package DBDAO;
+
+import Beans.Category;
+import Beans.Coupon;
+import DB.DBManager;
+import DB.DatabaseInitializer;
+import Exceptions.EntityCrudException;
+import Util.BoundedCache;
+import Util.InvalidationStamps;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read-through cache in front of CouponDBDAO. Class is singleton.
+ * Caches single Coupons by coupon ID number, up to COUPON_CACHE_MAX_SIZE, and the full Coupon list of each Company,
+ * up to COMPANY_COUPONS_CACHE_MAX_COMPANIES least recently read Companies. Category and max price listings of a Company
+ * are filtered in memory from its cached list. Entries live for COUPON_CACHE_TTL_MILLIS.
+ * Creates, updates, deletes and purchases made through this class invalidate the affected Coupons and Company lists,
+ * and the TTL bounds the staleness of changes made elsewhere, e.g. the asynchronous amount reconciliation of hot Coupons.
+ * Every cached entry keeps the InvalidationStamps stamps taken before it was read from MySQL, and is only served while
+ * neither its Coupons nor its Company were invalidated since, so a read racing an invalidation never serves stale data.
+ * Callers receive copies, so changing a returned Coupon never changes the cached one.
+ * All other methods pass straight through to CouponDBDAO.
+ */
+public class CachedCouponDAO implements CouponDAO {
+    private static CachedCouponDAO instance = null;
+    private final CouponDAO couponDAO;
+    private final BoundedCache<Integer, Stamped<Coupon>> cache =
+            new BoundedCache<>(DBManager.COUPON_CACHE_MAX_SIZE, DBManager.COUPON_CACHE_TTL_MILLIS, false);
+    private final BoundedCache<Integer, Stamped<List<Coupon>>> companyCoupons =
+            new BoundedCache<>(DBManager.COMPANY_COUPONS_CACHE_MAX_COMPANIES, DBManager.COUPON_CACHE_TTL_MILLIS, false);
+    private final InvalidationStamps couponStamps = new InvalidationStamps(DBManager.COUPON_CACHE_STAMP_STRIPES);
+    private final InvalidationStamps companyStamps = new InvalidationStamps(DBManager.COUPON_CACHE_STAMP_STRIPES);
+
+    /**
+     * Private constructor for CachedCouponDAO. Clears the cache whenever the tables are recreated.
+     *
+     * @param couponDAO CouponDAO to read through and delegate to
+     */
+    private CachedCouponDAO(CouponDAO couponDAO) {
+        this.couponDAO = couponDAO;
+        DatabaseInitializer.addTablesCreatedListener(this::invalidateAll);
+    }
+
+    /**
+     * Static method for retrieving and/or initiating an instance of CachedCouponDAO.
+     *
+     * @return CachedCouponDAO instance
+     */
+    public static CachedCouponDAO getInstance() {
+        if (instance == null) {
+            synchronized (CachedCouponDAO.class) {
+                if (instance == null) {
+                    instance = new CachedCouponDAO(CouponDBDAO.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Create Coupon record in MySQL database.
+     *
+     * @param coupon Coupon instance to create record by
+     * @throws EntityCrudException Thrown if Create in MySQL was unsuccessful
+     */
+    @Override
+    public void createCoupon(Coupon coupon) throws EntityCrudException {
+        try {
+            couponDAO.createCoupon(coupon);
+        } finally {
+            invalidateByCompanyId(coupon.getCompanyId());
+        }
+    }
+
+    /**
+     * Create Coupon records in MySQL database.
+     *
+     * @param coupons Coupon instances to create records by
+     * @throws EntityCrudException Thrown if Create in MySQL was unsuccessful
+     */
+    @Override
+    public void createCoupons(List<Coupon> coupons) throws EntityCrudException {
+        try {
+            couponDAO.createCoupons(coupons);
+        } finally {
+            coupons.stream().map(Coupon::getCompanyId).distinct().forEach(this::invalidateByCompanyId);
+        }
+    }
+
+    /**
+     * Create Coupon purchase record in MySQL database and invalidates the cached Coupon.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @throws EntityCrudException Thrown if Create in MySQL was unsuccessful
+     */
+    @Override
+    public void addCouponPurchase(Integer customerId, Integer couponId) throws EntityCrudException {
+        try {
+            couponDAO.addCouponPurchase(customerId, couponId);
+        } finally {
+            invalidate(couponId);
+        }
+    }
+
+    /**
+     * Purchases a Coupon for a Customer and invalidates the cached Coupon, whose amount changed.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @return PURCHASED, or the reason the purchase was rejected
+     * @throws EntityCrudException Thrown if the Coupon does not exist or the transaction in MySQL was unsuccessful
+     */
+    @Override
+    public PurchaseStatus purchaseCoupon(Integer customerId, Integer couponId) throws EntityCrudException {
+        try {
+            return couponDAO.purchaseCoupon(customerId, couponId);
+        } finally {
+            invalidate(couponId);
+        }
+    }
+
+    /**
+     * Returns a copy of the cached Coupon by coupon ID number, reading it from MySQL database on a miss.
+     * A Coupon whose Coupon or Company was invalidated while it was read is returned but not cached.
+     *
+     * @param couponId Coupon ID number
+     * @return Coupon instance
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Coupon readCoupon(Integer couponId) throws EntityCrudException {
+        Coupon cached = cachedCoupon(couponId);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long couponStamp = couponStamps.stamp();
+        long companyStamp = companyStamps.stamp();
+        Coupon coupon = couponDAO.readCoupon(couponId);
+        cacheCoupon(new Stamped<>(copy(coupon), couponStamp, companyStamp));
+        return coupon;
+    }
+
+    /**
+     * Returns copies of the Coupons of many coupon ID numbers, taking cached Coupons from the cache and reading the
+     * rest from MySQL database in chunked IN queries. Coupons invalidated while they were read are returned but not
+     * cached. Coupon ID numbers with no Coupon are left out of the result.
+     *
+     * @param couponIds Coupon ID numbers
+     * @return Map of coupon ID number to Coupon instance
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Coupon> readCoupons(Collection<Integer> couponIds) throws EntityCrudException {
+        Map<Integer, Coupon> coupons = new HashMap<>();
+        List<Integer> misses = new ArrayList<>();
+        for (Integer couponId : couponIds) {
+            Coupon cached = cachedCoupon(couponId);
+            if (cached != null) {
+                coupons.put(couponId, copy(cached));
+            } else {
+                misses.add(couponId);
+            }
+        }
+        if (misses.isEmpty()) {
+            return coupons;
+        }
+        long couponStamp = couponStamps.stamp();
+        long companyStamp = companyStamps.stamp();
+        Map<Integer, Coupon> read = couponDAO.readCoupons(misses);
+        read.values().forEach(coupon -> cacheCoupon(new Stamped<>(copy(coupon), couponStamp, companyStamp)));
+        coupons.putAll(read);
+        return coupons;
+    }
+
+    /**
+     * Returns a List of all Coupons in MySQL database.
+     *
+     * @return List of all Coupons in MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readAllCoupons() throws EntityCrudException {
+        return couponDAO.readAllCoupons();
+    }
+
+    /**
+     * Returns a lazy Stream of all Coupons in MySQL database.
+     *
+     * @return Stream of all Coupons in MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Stream<Coupon> streamAllCoupons() throws EntityCrudException {
+        return couponDAO.streamAllCoupons();
+    }
+
+    /**
+     * Returns a List of all Coupons a Customer owns by customer ID number from MySQL database.
+     *
+     * @param customerId Customer ID number
+     * @return List of all Coupons by customer ID from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readCouponsByCustomerId(Integer customerId) throws EntityCrudException {
+        return couponDAO.readCouponsByCustomerId(customerId);
+    }
+
+    /**
+     * Returns a List of all Coupons a Customer owns by customer ID number and maximum price threshold from MySQL database.
+     *
+     * @param customerId Customer ID number
+     * @param maxPrice   Maximum price that Coupon price in the list can not exceed
+     * @return List of all Coupons by customer ID and maximum price from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readCouponsByCustomerIdAndMaxPrice(Integer customerId, Double maxPrice) throws EntityCrudException {
+        return couponDAO.readCouponsByCustomerIdAndMaxPrice(customerId, maxPrice);
+    }
+
+    /**
+     * Returns a List of all Coupons a Customer owns by customer ID number and Coupon category from MySQL database.
+     *
+     * @param customerId Customer ID number
+     * @param category   Category that Coupons belong to
+     * @return List of all Coupons by customer ID and category from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readCouponsByCustomerIdAndCategory(Integer customerId, String category) throws EntityCrudException {
+        return couponDAO.readCouponsByCustomerIdAndCategory(customerId, category);
+    }
+
+    /**
+     * Returns copies of all Coupons a Company issued by company ID number, from the cached Company list.
+     *
+     * @param companyId Company ID number
+     * @return List of all Coupons by company ID
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readCouponsByCompanyId(Integer companyId) throws EntityCrudException {
+        return filterCompanyCoupons(companyId, coupon -> true);
+    }
+
+    /**
+     * Returns copies of all Coupons a Company issued by company ID number and maximum price threshold, filtered from the
+     * cached Company list.
+     *
+     * @param companyId Company ID number
+     * @param maxPrice  Maximum price that Coupon price in the list can not exceed
+     * @return List of all Coupons by company ID and maximum price
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readCouponsByCompanyIdAndMaxPrice(Integer companyId, Double maxPrice) throws EntityCrudException {
+        return filterCompanyCoupons(companyId, coupon -> coupon.getPrice() <= maxPrice);
+    }
+
+    /**
+     * Returns copies of all Coupons a Company issued by company ID number and Coupon category, filtered from the cached
+     * Company list.
+     *
+     * @param companyId Company ID number
+     * @param category  Category that Coupons belong to
+     * @return List of all Coupons by company ID and category
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Coupon> readCouponsByCompanyIdAndCategory(Integer companyId, String category) throws EntityCrudException {
+        return filterCompanyCoupons(companyId, coupon -> coupon.getCategory().equals(category));
+    }
+
+    /**
+     * Returns copies of the Coupons of a Company that match a condition, reading the Company list from MySQL database on
+     * a miss. A list whose Company or any of whose Coupons was invalidated while it was read is used but not cached.
+     *
+     * @param companyId Company ID number
+     * @param condition Condition selecting the Coupons to return
+     * @return ArrayList of matching Coupons, in the order MySQL returned them
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    private List<Coupon> filterCompanyCoupons(Integer companyId, Predicate<Coupon> condition) throws EntityCrudException {
+        Stamped<List<Coupon>> cached = companyCoupons.get(companyId);
+        List<Coupon> coupons;
+        if (cached != null && isValid(companyId, cached)) {
+            coupons = cached.value;
+        } else {
+            long couponStamp = couponStamps.stamp();
+            long companyStamp = companyStamps.stamp();
+            coupons = couponDAO.readCouponsByCompanyId(companyId).stream()
+                    .map(CachedCouponDAO::copy).collect(Collectors.toUnmodifiableList());
+            Stamped<List<Coupon>> loaded = new Stamped<>(coupons, couponStamp, companyStamp);
+            if (isValid(companyId, loaded)) {
+                companyCoupons.put(companyId, loaded);
+            }
+        }
+        return coupons.stream().filter(condition).map(CachedCouponDAO::copy).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Updates Coupon record in MySQL database and invalidates the cached Coupon.
+     *
+     * @param coupon Coupon instance to update by
+     * @throws EntityCrudException Thrown if update in MySQL was unsuccessful
+     */
+    @Override
+    public void updateCoupon(Coupon coupon) throws EntityCrudException {
+        try {
+            couponDAO.updateCoupon(coupon);
+        } finally {
+            invalidate(coupon.getId());
+            invalidateByCompanyId(coupon.getCompanyId());
+        }
+    }
+
+    /**
+     * Deletes Coupon record from MySQL database by coupon ID number and invalidates the cached Coupon.
+     *
+     * @param couponID ID number of the Coupon to be deleted
+     * @throws EntityCrudException Thrown if delete from MySQL was unsuccessful
+     */
+    @Override
+    public void deleteCoupon(Integer couponID) throws EntityCrudException {
+        try {
+            couponDAO.deleteCoupon(couponID);
+        } finally {
+            invalidate(couponID);
+        }
+    }
+
+    /**
+     * Deletes a chunk of expired Coupon records from MySQL database and invalidates the deleted Coupons.
+     * Clears the cache if the delete fails, as it is unknown which Coupons were deleted.
+     *
+     * @param date  Coupons ending before this date are expired
+     * @param limit Maximum number of Coupons to delete
+     * @return ID numbers of the deleted Coupons
+     * @throws EntityCrudException Thrown if delete from MySQL was unsuccessful
+     */
+    @Override
+    public List<Integer> deleteExpiredCoupons(Date date, int limit) throws EntityCrudException {
+        List<Integer> couponIds;
+        try {
+            couponIds = couponDAO.deleteExpiredCoupons(date, limit);
+        } catch (EntityCrudException e) {
+            invalidateAll();
+            throw e;
+        }
+        couponIds.forEach(this::invalidate);
+        return couponIds;
+    }
+
+    /**
+     * Checks whether the Coupon corresponding to the title argument exists in the Company corresponding to the company
+     * ID argument in MySQL database.
+     *
+     * @param companyId Issuing Company ID number
+     * @param title     Coupon title
+     * @return true -> coupon exists, false -> coupon does not exist
+     * @throws EntityCrudException Thrown if count in MySQL was unsuccessful
+     */
+    @Override
+    public boolean isCouponExistByCompanyId(Integer companyId, String title) throws EntityCrudException {
+        return couponDAO.isCouponExistByCompanyId(companyId, title);
+    }
+
+    /**
+     * Checks whether any of the titles is already used by a Coupon of the Company in MySQL database.
+     *
+     * @param companyId Issuing Company ID number
+     * @param titles    Coupon titles
+     * @return true -> at least one title exists, false -> none of the titles exist
+     * @throws EntityCrudException Thrown if count in MySQL was unsuccessful
+     */
+    @Override
+    public boolean isAnyCouponExistByCompanyId(Integer companyId, List<String> titles) throws EntityCrudException {
+        return couponDAO.isAnyCouponExistByCompanyId(companyId, titles);
+    }
+
+    /**
+     * Checks whether a Customer purchased a Coupon in MySQL database.
+     *
+     * @param couponId   Coupon ID number
+     * @param customerId Customer ID number
+     * @return true -> purchase exists, false -> purchase does not exist
+     * @throws EntityCrudException Thrown if count in MySQL was unsuccessful
+     */
+    @Override
+    public boolean isPurchaseExistByIds(Integer couponId, Integer customerId) throws EntityCrudException {
+        return couponDAO.isPurchaseExistByIds(couponId, customerId);
+    }
+
+    /**
+     * Invalidates every cached Coupon of a Company and its cached Coupon list, e.g. after the Company was deleted
+     * together with its Coupons.
+     *
+     * @param companyId Company ID number
+     */
+    public void invalidateByCompanyId(Integer companyId) {
+        companyStamps.invalidate(companyId);
+        companyCoupons.remove(companyId);
+        cache.removeIf(coupon -> coupon.value.getCompanyId() == companyId);
+    }
+
+    /**
+     * Invalidates a single cached Coupon and the cached Coupon list of its Company.
+     * The list is removed right away if the Company is known from the cached Coupon; otherwise it is dropped when next
+     * read, as its Coupon stamps no longer match.
+     *
+     * @param couponId Coupon ID number
+     */
+    public void invalidate(Integer couponId) {
+        couponStamps.invalidate(couponId);
+        Stamped<Coupon> cached = cache.remove(couponId);
+        if (cached != null) {
+            companyCoupons.remove(cached.value.getCompanyId());
+        }
+    }
+
+    /**
+     * Invalidates every cached Coupon and Company list.
+     */
+    public void invalidateAll() {
+        couponStamps.invalidateAll();
+        companyStamps.invalidateAll();
+        cache.clear();
+        companyCoupons.clear();
+    }
+
+    /**
+     * Returns the number of Coupon reads served from the cache.
+     *
+     * @return Hit count
+     */
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    /**
+     * Returns the number of Coupon reads that went to MySQL database.
+     *
+     * @return Miss count
+     */
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    /**
+     * Returns the number of Coupons dropped from the cache because they expired or the cache was full.
+     *
+     * @return Eviction count
+     */
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    /**
+     * Returns the cached Coupon of a coupon ID number if it is still valid.
+     *
+     * @param couponId Coupon ID number
+     * @return Cached Coupon, or null if not cached or invalidated since it was read
+     */
+    private Coupon cachedCoupon(Integer couponId) {
+        Stamped<Coupon> cached = cache.get(couponId);
+        return cached != null && isValid(cached) ? cached.value : null;
+    }
+
+    /**
+     * Caches a Coupon read from MySQL database, unless it was invalidated while it was read.
+     * An invalidation landing right after the check leaves an entry that is never served, as it is checked on every read.
+     *
+     * @param loaded Coupon with the stamps taken before it was read
+     */
+    private void cacheCoupon(Stamped<Coupon> loaded) {
+        if (isValid(loaded)) {
+            cache.put(loaded.value.getId(), loaded);
+        }
+    }
+
+    /**
+     * Checks whether neither a cached Coupon nor its Company were invalidated since it was read.
+     *
+     * @param coupon Cached Coupon
+     * @return true -> Coupon may be served, false -> Coupon is stale
+     */
+    private boolean isValid(Stamped<Coupon> coupon) {
+        return couponStamps.isValid(coupon.value.getId(), coupon.couponStamp)
+                && companyStamps.isValid(coupon.value.getCompanyId(), coupon.companyStamp);
+    }
+
+    /**
+     * Checks whether neither a cached Company list nor any of its Coupons were invalidated since it was read.
+     *
+     * @param companyId Company ID number
+     * @param coupons   Cached Company list
+     * @return true -> list may be served, false -> list is stale
+     */
+    private boolean isValid(Integer companyId, Stamped<List<Coupon>> coupons) {
+        if (!companyStamps.isValid(companyId, coupons.companyStamp)) {
+            return false;
+        }
+        for (Coupon coupon : coupons.value) {
+            if (!couponStamps.isValid(coupon.getId(), coupons.couponStamp)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies a Coupon, so cached instances are never shared with callers.
+     *
+     * @param coupon Coupon to copy
+     * @return New Coupon instance with the same attributes
+     */
+    private static Coupon copy(Coupon coupon) {
+        return new Coupon(coupon.getId(), coupon.getCompanyId(), coupon.getAmount(), coupon.getPrice(),
+                Category.valueOf(coupon.getCategory()), coupon.getTitle(), coupon.getDescription(), coupon.getImage(),
+                (Date) coupon.getStartDate().clone(), (Date) coupon.getEndDate().clone());
+    }
+
+    /**
+     * Cached value together with the InvalidationStamps stamps taken before it was read from MySQL database.
+     *
+     * @param <T> Type of the cached value
+     */
+    private static class Stamped<T> {
+        private final T value;
+        private final long couponStamp;
+        private final long companyStamp;
+
+        private Stamped(T value, long couponStamp, long companyStamp) {
+            this.value = value;
+            this.couponStamp = couponStamp;
+            this.companyStamp = companyStamp;
+        }
+    }
+}
@@ -3,13 +3,23 @@ package DBDAO;
 import Beans.Company;
 import Exceptions.EntityCrudException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface CompanyDAO {
     void createCompany(Company company) throws EntityCrudException;
+    void createCompanies(List<Company> companies) throws EntityCrudException;
     Company readCompany(Integer companyId) throws EntityCrudException;
+    Company readCompany(Integer companyId, FetchMode fetchMode) throws EntityCrudException;
+    Map<Integer, Company> readCompanies(Collection<Integer> companyIds) throws EntityCrudException;
     List<Company> readAllCompanies() throws EntityCrudException;
+    List<Company> readAllCompaniesWithCoupons() throws EntityCrudException;
+    List<Company> readCompaniesAfterId(Integer afterId, int limit) throws EntityCrudException;
+    Stream<Company> streamAllCompanies() throws EntityCrudException;
     void updateCompany(Company company) throws EntityCrudException;
     void deleteCompany(Integer companyId) throws EntityCrudException;
     boolean isCompanyExist(String name, String email) throws EntityCrudException;
+    boolean isAnyCompanyExist(List<Company> companies) throws EntityCrudException;
 }
@@ -1,25 +1,37 @@
 package DBDAO;
 
 import Beans.Company;
+import Beans.Coupon;
+import Beans.LazyList;
+import DB.BatchBinding;
+import DB.Binding;
 import DB.DBManager;
 import DB.DBTools;
 import DB.ObjectExtractionUtil;
 import Exceptions.CrudOperation;
+import Exceptions.DBStreamException;
 import Exceptions.EntityCrudException;
 import Exceptions.EntityType;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class containing all Create-Read-Update-Delete methods for "companies" table.
  */
 public class CompanyDBDAO implements CompanyDAO {
     private static CompanyDBDAO instance = null;
+    private static final BatchBinding<Company> COMPANY_BINDING = (binder, company) -> binder
+            .bindString(company.getName())
+            .bindString(company.getEmail())
+            .bindString(company.getPassword());
 
     /**
      * Private constructor for CompanyDBDAO.
@@ -51,10 +63,8 @@ public class CompanyDBDAO implements CompanyDAO {
      */
     @Override
     public void createCompany(Company company) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, company.getName());
-        params.put(2, company.getEmail());
-        params.put(3, company.getPassword());
+        Binding params = binder -> COMPANY_BINDING.bind(binder, company);
+        ExistenceFilter.getInstance().addCompany(company);
         try {
             System.out.println("Created Company: " + DBTools.runQuery(DBManager.CREATE_COMPANY, params));
         } catch (SQLException e) {
@@ -62,9 +72,26 @@ public class CompanyDBDAO implements CompanyDAO {
         }
     }
 
+    /**
+     * Create Company records in MySQL database as JDBC batches of BATCH_CHUNK_SIZE, one transaction per chunk.
+     *
+     * @param companies Company instances to create records by
+     * @throws EntityCrudException Thrown if Create in MySQL was unsuccessful, previously committed chunks stay written
+     */
+    @Override
+    public void createCompanies(List<Company> companies) throws EntityCrudException {
+        companies.forEach(ExistenceFilter.getInstance()::addCompany);
+        try {
+            System.out.println("Created Companies: " + DBTools.runBatch(DBManager.CREATE_COMPANY, companies, COMPANY_BINDING));
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new EntityCrudException(EntityType.COMPANY, CrudOperation.CREATE);
+        }
+    }
+
     /**
      * Returns an instance of Company from MySQL database by company ID number.
-     * Returns Company ID number, Name and Email. Does not return password.
+     * Returns Company ID number, Name and Email. Does not return password. The Coupon list is loaded lazily, on first access.
      *
      * @param companyId Company ID number
      * @return Company instance from MySQL database
@@ -72,14 +99,51 @@ public class CompanyDBDAO implements CompanyDAO {
      */
     @Override
     public Company readCompany(Integer companyId) throws EntityCrudException {
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, companyId);
+        return readCompany(companyId, FetchMode.LAZY);
+    }
+
+    /**
+     * Returns an instance of Company from MySQL database by company ID number.
+     * Returns Company ID number, Name and Email. Does not return password.
+     *
+     * @param companyId Company ID number
+     * @param fetchMode LAZY -> Coupon list is loaded on first access, EAGER -> Coupon list is loaded right away
+     * @return Company instance from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Company readCompany(Integer companyId, FetchMode fetchMode) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(companyId);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COMPANY_BY_ID, params);
-            assert result != null;
-            result.next();
-            return ObjectExtractionUtil.resultSetToCompany(result, CouponDBDAO.getInstance().readCouponsByCompanyId(companyId));
+            Company company = DBTools.runQueryForObject(DBManager.READ_COMPANY_BY_ID, params, ObjectExtractionUtil::resultSetToCompany);
+            if (company == null) {
+                throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
+            }
+            if (fetchMode == FetchMode.EAGER) {
+                company.setCoupons(CachedCouponDAO.getInstance().readCouponsByCompanyId(companyId));
+            } else {
+                company.setCoupons(new LazyList<>(() -> CachedCouponDAO.getInstance().readCouponsByCompanyId(companyId)));
+            }
+            return company;
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns the Companies of many company ID numbers from MySQL database, read by chunked IN queries.
+     * Returns Company ID number, Name and Email. Does not return password or Coupons.
+     * Company ID numbers with no Company are left out of the result.
+     *
+     * @param companyIds Company ID numbers
+     * @return Map of company ID number to Company instance
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Company> readCompanies(Collection<Integer> companyIds) throws EntityCrudException {
+        try {
+            return DBTools.runQueryForListByIds(DBManager.READ_COMPANIES_BY_IDS, companyIds, ObjectExtractionUtil::resultSetToCompany)
+                    .stream().collect(Collectors.toMap(Company::getId, Function.identity()));
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
         }
@@ -93,14 +157,77 @@ public class CompanyDBDAO implements CompanyDAO {
      */
     @Override
     public List<Company> readAllCompanies() throws EntityCrudException {
-        ResultSet result;
-        List<Company> companyList = new ArrayList<>();
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_ALL_COMPANIES);
-            while (result.next()) {
-                companyList.add(ObjectExtractionUtil.resultSetToCompany(result));
-            }
-            return companyList;
+            return DBTools.runQueryForList(DBManager.READ_ALL_COMPANIES, ObjectExtractionUtil::resultSetToCompany);
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns a List of all Companies in MySQL database, each with its Coupon list, read by a single ordered join.
+     * Rows are grouped into Companies while they are streamed, so the query costs one round trip regardless of the
+     * number of Companies. Returns Company ID number, Name, Email and Coupons. Does not return password.
+     *
+     * @return List of all Companies with their Coupons, in ascending ID number order
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Company> readAllCompaniesWithCoupons() throws EntityCrudException {
+        List<Company> companies = new ArrayList<>();
+        try (Stream<Map.Entry<Company, Coupon>> rows = DBTools.streamQuery(DBManager.READ_ALL_COMPANIES_WITH_COUPONS,
+                result -> new AbstractMap.SimpleImmutableEntry<>(
+                        ObjectExtractionUtil.resultSetToCompany(result),
+                        ObjectExtractionUtil.resultSetToCouponIfPresent(result)))) {
+            rows.forEachOrdered(row -> {
+                Company company = companies.isEmpty() ? null : companies.get(companies.size() - 1);
+                if (company == null || company.getId() != row.getKey().getId()) {
+                    company = row.getKey();
+                    company.setCoupons(new ArrayList<>());
+                    companies.add(company);
+                }
+                if (row.getValue() != null) {
+                    company.getCoupons().add(row.getValue());
+                }
+            });
+        } catch (SQLException | DBStreamException e) {
+            throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
+        }
+        return companies;
+    }
+
+    /**
+     * Returns up to limit Companies with an ID number greater than afterId, in ascending ID number order.
+     * Seeks on the primary key, so reading any page costs the same regardless of its depth.
+     * Returns Company ID number, Name and Email. Does not return password.
+     *
+     * @param afterId ID number of the last Company of the previous page, 0 for the first page
+     * @param limit   Maximum number of Companies to return
+     * @return List of Companies following afterId
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Company> readCompaniesAfterId(Integer afterId, int limit) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(afterId).bindInt(limit);
+        try {
+            return DBTools.runQueryForList(DBManager.READ_COMPANIES_AFTER_ID, params, ObjectExtractionUtil::resultSetToCompany);
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns a lazy Stream of all Companies in MySQL database, read through a cursor STREAM_FETCH_SIZE rows at a time.
+     * Returns Company ID number, Name and Email. Does not return password.
+     * Holds a Connection until exhausted or closed, so it should be consumed in a try-with-resources block.
+     *
+     * @return Stream of all Companies in MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Stream<Company> streamAllCompanies() throws EntityCrudException {
+        try {
+            return DBTools.streamQuery(DBManager.READ_ALL_COMPANIES, ObjectExtractionUtil::resultSetToCompany);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COMPANY, CrudOperation.READ);
         }
@@ -115,10 +242,11 @@ public class CompanyDBDAO implements CompanyDAO {
      */
     @Override
     public void updateCompany(Company company) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, company.getEmail());
-        params.put(2, company.getPassword());
-        params.put(3, company.getId());
+        Binding params = binder -> binder
+                .bindString(company.getEmail())
+                .bindString(company.getPassword())
+                .bindInt(company.getId());
+        ExistenceFilter.getInstance().addCompany(company);
         try {
             System.out.println("Updated Company: " + DBTools.runQuery(DBManager.UPDATE_COMPANY_BY_ID, params));
         } catch (SQLException e) {
@@ -134,10 +262,10 @@ public class CompanyDBDAO implements CompanyDAO {
      */
     @Override
     public void deleteCompany(Integer companyId) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, companyId);
+        Binding params = binder -> binder.bindInt(companyId);
         try {
             System.out.println("Deleted Company: " + DBTools.runQuery(DBManager.DELETE_COMPANY_BY_ID, params));
+            PurchaseIndex.getInstance().clear();
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COMPANY, CrudOperation.DELETE);
         }
@@ -145,7 +273,7 @@ public class CompanyDBDAO implements CompanyDAO {
 
     /**
      * Checks whether the Company corresponding to the name or email arguments exists in MySQL database
-     * by counting the companies that meet the criteria.
+     * by counting the companies that meet the criteria. Skips MySQL if ExistenceFilter rules both values out.
      *
      * @param name  Company name
      * @param email Company email
@@ -154,17 +282,54 @@ public class CompanyDBDAO implements CompanyDAO {
      */
     @Override
     public boolean isCompanyExist(String name, String email) throws EntityCrudException {
-        int counter;
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, name);
-        params.put(2, email);
+        if (!ExistenceFilter.getInstance().mightContainCompany(name, email)) {
+            ExistenceFilter.getInstance().countSavedQuery();
+            return false;
+        }
+        Binding params = binder -> binder.bindString(name).bindString(email);
         try {
-            result = DBTools.runQueryForResult(DBManager.COUNT_COMPANIES_BY_NAME_OR_EMAIL, params);
-            assert result != null;
-            result.next();
-            counter = result.getInt(1);
-            return counter != 0;
+            return DBTools.runQueryForInt(DBManager.COUNT_COMPANIES_BY_NAME_OR_EMAIL, params) != 0;
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COMPANY, CrudOperation.COUNT);
+        }
+    }
+
+    /**
+     * Checks whether any of the Companies argument already exists in MySQL database by name or email,
+     * counting the matching companies BATCH_CHUNK_SIZE companies at a time. Only Companies ExistenceFilter can not rule
+     * out are counted, and each IN list is padded by DBTools.padInList.
+     *
+     * @param companies Company instances to check
+     * @return true -> at least one company exists, false -> none of the companies exist
+     * @throws EntityCrudException Thrown if count in MySQL was unsuccessful
+     */
+    @Override
+    public boolean isAnyCompanyExist(List<Company> companies) throws EntityCrudException {
+        ExistenceFilter filter = ExistenceFilter.getInstance();
+        List<Company> candidates = companies.stream()
+                .filter(company -> filter.mightContainCompany(company.getName(), company.getEmail()))
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            filter.countSavedQuery();
+            return false;
+        }
+        try {
+            for (int start = 0; start < candidates.size(); start += DBManager.BATCH_CHUNK_SIZE) {
+                List<Company> chunk = DBTools.padInList(candidates.subList(start, Math.min(candidates.size(), start + DBManager.BATCH_CHUNK_SIZE)));
+                String sql = String.format(DBManager.COUNT_COMPANIES_BY_NAMES_OR_EMAILS, DBTools.placeholders(chunk.size()));
+                Binding params = binder -> {
+                    for (Company company : chunk) {
+                        binder.bindString(company.getName());
+                    }
+                    for (Company company : chunk) {
+                        binder.bindString(company.getEmail());
+                    }
+                };
+                if (DBTools.runQueryForInt(sql, params) != 0) {
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COMPANY, CrudOperation.COUNT);
         }
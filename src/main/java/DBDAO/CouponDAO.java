@@ -3,13 +3,21 @@ package DBDAO;
 import Beans.Coupon;
 import Exceptions.EntityCrudException;
 
+import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface CouponDAO {
     void createCoupon(Coupon coupon) throws EntityCrudException;
+    void createCoupons(List<Coupon> coupons) throws EntityCrudException;
     void addCouponPurchase(Integer customerId, Integer couponId) throws EntityCrudException;
+    PurchaseStatus purchaseCoupon(Integer customerId, Integer couponId) throws EntityCrudException;
     Coupon readCoupon(Integer couponId) throws EntityCrudException;
+    Map<Integer, Coupon> readCoupons(Collection<Integer> couponIds) throws EntityCrudException;
     List<Coupon> readAllCoupons() throws EntityCrudException;
+    Stream<Coupon> streamAllCoupons() throws EntityCrudException;
     List<Coupon> readCouponsByCustomerId(Integer customerId) throws EntityCrudException;
     List<Coupon> readCouponsByCustomerIdAndMaxPrice(Integer customerId, Double maxPrice) throws EntityCrudException;
     List<Coupon> readCouponsByCustomerIdAndCategory(Integer customerId, String category) throws EntityCrudException;
@@ -18,7 +26,8 @@ public interface CouponDAO {
     List<Coupon> readCouponsByCompanyIdAndCategory(Integer companyId, String category) throws EntityCrudException;
     void updateCoupon(Coupon coupon) throws EntityCrudException;
     void deleteCoupon(Integer couponID) throws EntityCrudException;
-    void deleteExpiredCoupons(String date) throws EntityCrudException;
+    List<Integer> deleteExpiredCoupons(Date date, int limit) throws EntityCrudException;
     boolean isCouponExistByCompanyId(Integer companyId, String title) throws EntityCrudException;
+    boolean isAnyCouponExistByCompanyId(Integer companyId, List<String> titles) throws EntityCrudException;
     boolean isPurchaseExistByIds(Integer couponId, Integer customerId) throws EntityCrudException;
 }
@@ -2,6 +2,9 @@ package DBDAO;
 
 
 import Beans.Coupon;
+import DB.BatchBinding;
+import DB.Binding;
+import DB.ConnectionRouter;
 import DB.DBManager;
 import DB.DBTools;
 import DB.ObjectExtractionUtil;
@@ -9,18 +12,35 @@ import Exceptions.CrudOperation;
 import Exceptions.EntityCrudException;
 import Exceptions.EntityType;
 
-import java.sql.ResultSet;
+import java.sql.Date;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class containing all Create-Read-Update-Delete methods for "coupons" and "customer_to_coupon" tables.
  */
 public class CouponDBDAO implements CouponDAO {
     private static CouponDBDAO instance = null;
+    private static final BatchBinding<Coupon> COUPON_BINDING = (binder, coupon) -> binder
+            .bindInt(coupon.getCompanyId())
+            .bindInt(coupon.getAmount())
+            .bindDouble(coupon.getPrice())
+            .bindString(coupon.getCategory())
+            .bindString(coupon.getTitle())
+            .bindString(coupon.getDescription())
+            .bindString(coupon.getImage())
+            .bindDate(coupon.getStartDate())
+            .bindDate(coupon.getEndDate());
 
     /**
      * Private constructor for CouponDBDAO.
@@ -52,16 +72,7 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public void createCoupon(Coupon coupon) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, coupon.getCompanyId());
-        params.put(2, coupon.getAmount());
-        params.put(3, coupon.getPrice());
-        params.put(4, coupon.getCategory());
-        params.put(5, coupon.getTitle());
-        params.put(6, coupon.getDescription());
-        params.put(7, coupon.getImage());
-        params.put(8, coupon.getStartDate());
-        params.put(9, coupon.getEndDate());
+        Binding params = binder -> COUPON_BINDING.bind(binder, coupon);
         try {
             System.out.println("Created Coupon: " + DBTools.runQuery(DBManager.CREATE_COUPON, params));
         } catch (SQLException e) {
@@ -69,8 +80,26 @@ public class CouponDBDAO implements CouponDAO {
         }
     }
 
+    /**
+     * Create Coupon records in MySQL database as JDBC batches of BATCH_CHUNK_SIZE, one transaction per chunk.
+     *
+     * @param coupons Coupon instances to create records by
+     * @throws EntityCrudException Thrown if Create in MySQL was unsuccessful, previously committed chunks stay written
+     */
+    @Override
+    public void createCoupons(List<Coupon> coupons) throws EntityCrudException {
+        try {
+            System.out.println("Created Coupons: " + DBTools.runBatch(DBManager.CREATE_COUPON, coupons, COUPON_BINDING));
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new EntityCrudException(EntityType.COUPON, CrudOperation.CREATE);
+        }
+    }
+
     /**
      * Create Coupon purchase record in MySQL database.
+     * The record is written by PurchaseWriteBatcher together with concurrent purchases, in one multi-row insert and commit.
+     * Returns once the record is committed.
      *
      * @param customerId ID number of buying Customer
      * @param couponId   ID number of bought Coupon
@@ -78,16 +107,194 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public void addCouponPurchase(Integer customerId, Integer couponId) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customerId);
-        params.put(2, couponId);
         try {
-            System.out.println("Added Coupon purchase: " + DBTools.runQuery(DBManager.ADD_COUPON_PURCHASE, params));
+            insertPurchase(customerId, couponId, null);
+            PurchaseIndex.getInstance().add(customerId, couponId);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.CREATE);
         }
     }
 
+    /**
+     * Purchases a Coupon for a Customer.
+     * The amount is lowered in its own short transaction by a conditional UPDATE that only matches an unexpired Coupon
+     * with amount left, so concurrent purchases of the same Coupon are serialized on the Coupon row and can never
+     * oversell it. The purchase record is then handed to PurchaseWriteBatcher, which inserts it together with
+     * concurrent purchases in one multi-row insert. A repeated purchase is detected by the (id_customer, id_coupon)
+     * primary key rejecting the insert, after which the unit is given back.
+     * A unit whose record is lost to a crash before the batch commits stays taken: the Coupon may undersell, never oversell.
+     * Coupons designated in HotCouponInventory reserve their unit in memory instead and never lock the Coupon row.
+     * A repeated purchase already known to PurchaseIndex is rejected without opening a transaction.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @return PURCHASED, or the reason the purchase was rejected
+     * @throws EntityCrudException Thrown if the Coupon does not exist or the transaction in MySQL was unsuccessful
+     */
+    @Override
+    public PurchaseStatus purchaseCoupon(Integer customerId, Integer couponId) throws EntityCrudException {
+        if (PurchaseIndex.getInstance().isKnownPurchase(customerId, couponId)) {
+            return PurchaseStatus.ALREADY_PURCHASED;
+        }
+        Date today = Date.valueOf(LocalDate.now());
+        try {
+            PurchaseStatus status = null;
+            if (HotCouponInventory.getInstance().isHot(couponId)) {
+                status = purchaseHotCoupon(customerId, couponId, today);
+            }
+            if (status == null) {
+                status = purchaseRegularCoupon(customerId, couponId, today);
+            }
+            if (status == null) {
+                throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
+            }
+            if (status == PurchaseStatus.PURCHASED || status == PurchaseStatus.ALREADY_PURCHASED) {
+                PurchaseIndex.getInstance().add(customerId, couponId);
+            }
+            System.out.println("Purchased Coupon: " + status);
+            return status;
+        } catch (SQLException e) {
+            if (isDuplicateEntry(e)) {
+                PurchaseIndex.getInstance().add(customerId, couponId);
+                return PurchaseStatus.ALREADY_PURCHASED;
+            }
+            throw new EntityCrudException(EntityType.PURCHASE, CrudOperation.CREATE);
+        }
+    }
+
+    /**
+     * Purchase of a regular Coupon: decrements "coupons.amount" in a transaction of its own, then inserts the purchase
+     * record through PurchaseWriteBatcher, giving the unit back if the insert is rejected.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @param today      Current date, for the expiration check
+     * @return PURCHASED, the reason the purchase was rejected, or null if the Coupon does not exist
+     * @throws SQLException Thrown if the transaction or the insert was not executed
+     */
+    private PurchaseStatus purchaseRegularCoupon(Integer customerId, Integer couponId, Date today) throws SQLException {
+        Binding decrementParams = binder -> binder.bindInt(couponId).bindDate(today);
+        Binding countParams = binder -> binder.bindInt(couponId).bindInt(customerId);
+        Binding couponParams = binder -> binder.bindInt(couponId);
+        PurchaseStatus status = DBTools.runInTransaction(transaction -> {
+            if (transaction.update(DBManager.DECREMENT_COUPON_AMOUNT_IF_AVAILABLE, decrementParams) == 0) {
+                transaction.setRollbackOnly();
+                if (transaction.queryForInt(DBManager.COUNT_PURCHASE_BY_IDS, countParams) != 0) {
+                    return PurchaseStatus.ALREADY_PURCHASED;
+                }
+                Coupon coupon = transaction.queryForObject(DBManager.READ_COUPON_BY_ID, couponParams, ObjectExtractionUtil::resultSetToCoupon);
+                if (coupon == null) {
+                    return null;
+                }
+                return coupon.getEndDate().before(today) ? PurchaseStatus.EXPIRED : PurchaseStatus.SOLD_OUT;
+            }
+            return PurchaseStatus.PURCHASED;
+        });
+        if (status == PurchaseStatus.PURCHASED) {
+            insertPurchase(customerId, couponId, DBManager.INCREMENT_COUPON_AMOUNT);
+        }
+        return status;
+    }
+
+    /**
+     * Purchase of a hot Coupon: reserves a unit in memory, rejecting sold-out attempts with a single primary-key lookup
+     * that only confirms the Coupon is still hot, then counts the unit in "hot_inventory.sold" in a transaction of its
+     * own and inserts the purchase record through PurchaseWriteBatcher. "coupons.amount" is left to the
+     * HotCouponInventory reconciler.
+     * The Coupon row is not locked, and a repeated purchase is detected by the primary key rejecting the insert, after
+     * which the unit is given back. Counting the unit locks the "hot_inventory" row only for its own short transaction,
+     * and a Coupon released meanwhile has the unit already counted in its final amount.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @param today      Current date, for the expiration check
+     * @return PURCHASED, the reason the purchase was rejected, or null if the Coupon is no longer hot
+     * @throws SQLException Thrown if the transaction or the insert was not executed
+     */
+    private PurchaseStatus purchaseHotCoupon(Integer customerId, Integer couponId, Date today) throws SQLException {
+        HotCouponInventory hotInventory = HotCouponInventory.getInstance();
+        if (!hotInventory.reserve(couponId)) {
+            return hotInventory.isStillHot(couponId) ? PurchaseStatus.SOLD_OUT : null;
+        }
+        Binding couponParams = binder -> binder.bindInt(couponId);
+        PurchaseStatus status = null;
+        try {
+            status = DBTools.runInTransaction(transaction -> {
+                Coupon coupon = transaction.queryForObject(DBManager.READ_COUPON_BY_ID, couponParams, ObjectExtractionUtil::resultSetToCoupon);
+                if (coupon != null && coupon.getEndDate().before(today)) {
+                    return PurchaseStatus.EXPIRED;
+                }
+                if (coupon == null || transaction.update(DBManager.INCREMENT_HOT_INVENTORY_SOLD, couponParams) == 0) {
+                    hotInventory.forget(couponId);
+                    return null;
+                }
+                return PurchaseStatus.PURCHASED;
+            });
+            if (status == PurchaseStatus.PURCHASED) {
+                insertPurchase(customerId, couponId, DBManager.DECREMENT_HOT_INVENTORY_SOLD);
+            }
+            return status;
+        } catch (SQLException e) {
+            status = null;
+            throw e;
+        } finally {
+            if (status == PurchaseStatus.PURCHASED) {
+                hotInventory.markPurchased(couponId);
+            } else {
+                hotInventory.cancel(couponId);
+            }
+        }
+    }
+
+    /**
+     * Hands a purchase record to PurchaseWriteBatcher and waits for its batch to commit.
+     * The wait is not cut short by an interrupt, since the record may still be written; the interrupt flag is restored
+     * afterwards. Once committed, the read-your-writes window of the calling thread is opened, as the insert ran on the
+     * batcher's thread. If the insert is rejected, the unit taken for the purchase is given back first.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @param undoSql    SQL script giving back the unit of the Coupon, or null if no unit was taken
+     * @throws SQLException Thrown if the record was rejected or not written
+     */
+    private void insertPurchase(Integer customerId, Integer couponId, String undoSql) throws SQLException {
+        CompletableFuture<Void> result = PurchaseWriteBatcher.getInstance().submit(customerId, couponId);
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    result.get();
+                    ConnectionRouter.getInstance().recordWrite();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    if (undoSql != null) {
+                        DBTools.runQuery(undoSql, binder -> binder.bindInt(couponId));
+                    }
+                    if (e.getCause() instanceof SQLException) {
+                        throw (SQLException) e.getCause();
+                    }
+                    throw new SQLException("Purchase was not written", e.getCause());
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Checks whether a SQLException was caused by inserting a duplicate key.
+     *
+     * @param e SQLException thrown by MySQL
+     * @return true -> duplicate key, false -> any other failure
+     */
+    private boolean isDuplicateEntry(SQLException e) {
+        return e instanceof SQLIntegrityConstraintViolationException && e.getErrorCode() == DBManager.DUPLICATE_ENTRY_ERROR_CODE;
+    }
+
     /**
      * Returns an instance of Coupon from MySQL database by coupon ID number.
      *
@@ -97,20 +304,37 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public Coupon readCoupon(Integer couponId) throws EntityCrudException {
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, couponId);
+        Binding params = binder -> binder.bindInt(couponId);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPON_BY_ID, params);
-            assert result != null;
-            result.next();
-            return ObjectExtractionUtil.resultSetToCoupon(result);
+            Coupon coupon = DBTools.runQueryForObject(DBManager.READ_COUPON_BY_ID, params, ObjectExtractionUtil::resultSetToCoupon);
+            if (coupon == null) {
+                throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
+            }
+            return coupon;
         } catch (SQLException e) {
             System.out.println(e.getMessage());
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
     }
 
+    /**
+     * Returns the Coupons of many coupon ID numbers from MySQL database, read by chunked IN queries.
+     * Coupon ID numbers with no Coupon are left out of the result.
+     *
+     * @param couponIds Coupon ID numbers
+     * @return Map of coupon ID number to Coupon instance
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Coupon> readCoupons(Collection<Integer> couponIds) throws EntityCrudException {
+        try {
+            return DBTools.runQueryForListByIds(DBManager.READ_COUPONS_BY_IDS, couponIds, ObjectExtractionUtil::resultSetToCoupon)
+                    .stream().collect(Collectors.toMap(Coupon::getId, Function.identity()));
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
+        }
+    }
+
     /**
      * Returns a List of all Coupons in MySQL database.
      *
@@ -119,14 +343,24 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readAllCoupons() throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_ALL_COUPONS);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_ALL_COUPONS, ObjectExtractionUtil::resultSetToCoupon);
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns a lazy Stream of all Coupons in MySQL database, read through a cursor STREAM_FETCH_SIZE rows at a time.
+     * Holds a Connection until exhausted or closed, so it should be consumed in a try-with-resources block.
+     *
+     * @return Stream of all Coupons in MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Stream<Coupon> streamAllCoupons() throws EntityCrudException {
+        try {
+            return DBTools.streamQuery(DBManager.READ_ALL_COUPONS, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -141,16 +375,9 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readCouponsByCustomerId(Integer customerId) throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customerId);
+        Binding params = binder -> binder.bindInt(customerId);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPONS_BY_CUSTOMER_ID, params);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_COUPONS_BY_CUSTOMER_ID, params, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -166,17 +393,9 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readCouponsByCustomerIdAndMaxPrice(Integer customerId, Double maxPrice) throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customerId);
-        params.put(2, maxPrice);
+        Binding params = binder -> binder.bindInt(customerId).bindDouble(maxPrice);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPONS_BY_CUSTOMER_ID_AND_MAX_PRICE, params);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_COUPONS_BY_CUSTOMER_ID_AND_MAX_PRICE, params, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -192,17 +411,9 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readCouponsByCustomerIdAndCategory(Integer customerId, String category) throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customerId);
-        params.put(2, category);
+        Binding params = binder -> binder.bindInt(customerId).bindString(category);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPONS_BY_CUSTOMER_ID_AND_CATEGORY, params);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_COUPONS_BY_CUSTOMER_ID_AND_CATEGORY, params, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -217,16 +428,9 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readCouponsByCompanyId(Integer companyId) throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, companyId);
+        Binding params = binder -> binder.bindInt(companyId);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPONS_BY_COMPANY_ID, params);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_COUPONS_BY_COMPANY_ID, params, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -242,17 +446,9 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readCouponsByCompanyIdAndMaxPrice(Integer companyId, Double maxPrice) throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, companyId);
-        params.put(2, maxPrice);
+        Binding params = binder -> binder.bindInt(companyId).bindDouble(maxPrice);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPONS_BY_COMPANY_ID_AND_MAX_PRICE, params);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_COUPONS_BY_COMPANY_ID_AND_MAX_PRICE, params, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -268,17 +464,9 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public List<Coupon> readCouponsByCompanyIdAndCategory(Integer companyId, String category) throws EntityCrudException {
-        ResultSet result;
-        List<Coupon> couponList = new ArrayList<>();
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, companyId);
-        params.put(2, category);
+        Binding params = binder -> binder.bindInt(companyId).bindString(category);
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_COUPONS_BY_COMPANY_ID_AND_CATEGORY, params);
-            while (result.next()) {
-                couponList.add(ObjectExtractionUtil.resultSetToCoupon(result));
-            }
-            return couponList;
+            return DBTools.runQueryForList(DBManager.READ_COUPONS_BY_COMPANY_ID_AND_CATEGORY, params, ObjectExtractionUtil::resultSetToCoupon);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
         }
@@ -292,15 +480,15 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public void updateCoupon(Coupon coupon) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, coupon.getTitle());
-        params.put(2, coupon.getCategory());
-        params.put(3, coupon.getAmount());
-        params.put(4, coupon.getDescription());
-        params.put(5, coupon.getPrice());
-        params.put(6, coupon.getImage());
-        params.put(7, coupon.getEndDate());
-        params.put(8, coupon.getId());
+        Binding params = binder -> binder
+                .bindString(coupon.getTitle())
+                .bindString(coupon.getCategory())
+                .bindInt(coupon.getAmount())
+                .bindString(coupon.getDescription())
+                .bindDouble(coupon.getPrice())
+                .bindString(coupon.getImage())
+                .bindDate(coupon.getEndDate())
+                .bindInt(coupon.getId());
         try {
             System.out.println("Updated Coupon: " + DBTools.runQuery(DBManager.UPDATE_COUPON_BY_ID, params));
         } catch (SQLException e) {
@@ -316,27 +504,44 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public void deleteCoupon(Integer couponID) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, couponID);
+        Binding params = binder -> binder.bindInt(couponID);
         try {
             System.out.println("Deleted Coupon: " + DBTools.runQuery(DBManager.DELETE_COUPON_BY_ID, params));
+            PurchaseIndex.getInstance().removeCoupon(couponID);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.DELETE);
         }
     }
 
     /**
-     * Deletes Coupon records from MySQL database by coupon expiration date.
+     * Deletes up to limit Coupon records that expired before a date from MySQL database, lowest coupon ID numbers first.
+     * The chunk is selected and deleted by primary key in one short transaction, so the cascade to "customer_to_coupon"
+     * locks only the rows of the chunk. Call repeatedly until it returns an empty List to delete every expired Coupon.
      *
-     * @param date current date
+     * @param date  Coupons ending before this date are expired
+     * @param limit Maximum number of Coupons to delete
+     * @return ID numbers of the deleted Coupons
      * @throws EntityCrudException Thrown if delete from MySQL was unsuccessful
      */
     @Override
-    public void deleteExpiredCoupons(String date) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, date);
+    public List<Integer> deleteExpiredCoupons(Date date, int limit) throws EntityCrudException {
+        Binding readParams = binder -> binder.bindDate(date).bindInt(limit);
         try {
-            System.out.println("Deleted Coupon: " + DBTools.runQuery(DBManager.DELETE_COUPON_BY_END_DATE, params));
+            List<Integer> couponIds = DBTools.runInTransaction(transaction -> {
+                List<Integer> expired = transaction.queryForList(DBManager.READ_EXPIRED_COUPON_IDS, readParams, result -> result.getInt(1));
+                if (!expired.isEmpty()) {
+                    Binding deleteParams = binder -> {
+                        for (Integer couponId : expired) {
+                            binder.bindInt(couponId);
+                        }
+                        binder.bindDate(date);
+                    };
+                    transaction.update(String.format(DBManager.DELETE_EXPIRED_COUPONS_BY_IDS, DBTools.placeholders(expired.size())), deleteParams);
+                }
+                return expired;
+            });
+            PurchaseIndex.getInstance().removeCoupons(couponIds);
+            return couponIds;
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.DELETE);
         }
@@ -353,46 +558,57 @@ public class CouponDBDAO implements CouponDAO {
      */
     @Override
     public boolean isCouponExistByCompanyId(Integer companyId, String title) throws EntityCrudException {
-        int counter;
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, companyId);
-        params.put(2, title);
+        Binding params = binder -> binder.bindInt(companyId).bindString(title);
         try {
-            result = DBTools.runQueryForResult(DBManager.COUNT_COUPONS_BY_COMPANY_ID_AND_TITLE, params);
-            assert result != null;
-            result.next();
-            counter = result.getInt(1);
-            return counter != 0;
+            return DBTools.runQueryForInt(DBManager.COUNT_COUPONS_BY_COMPANY_ID_AND_TITLE, params) != 0;
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.COUNT);
         }
     }
 
     /**
-     * Checks whether the purchase of a Coupon corresponding to the coupon ID by a Customer corresponding to the customer ID
-     * exists in MySQL database by counting the purchases that meet both criteria.
+     * Checks whether any of the titles argument already exists in the Company corresponding to the company ID argument
+     * in MySQL database, counting the matching coupons BATCH_CHUNK_SIZE titles at a time. Each IN list is padded by
+     * DBTools.padInList, so only a few distinct statements reach the StatementCache.
      *
-     * @param couponId   The Coupon ID being checked
-     * @param customerId The Customer ID being checked
-     * @return true -> purchase of the coupon by the customer exists, false -> purchase does not exist
+     * @param companyId Issuing Company ID number
+     * @param titles    Coupon titles
+     * @return true -> at least one coupon exists, false -> none of the coupons exist
      * @throws EntityCrudException Thrown if count in MySQL was unsuccessful
      */
     @Override
-    public boolean isPurchaseExistByIds(Integer couponId, Integer customerId) throws EntityCrudException {
-        int counter;
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, couponId);
-        params.put(2, customerId);
+    public boolean isAnyCouponExistByCompanyId(Integer companyId, List<String> titles) throws EntityCrudException {
         try {
-            result = DBTools.runQueryForResult(DBManager.COUNT_PURCHASE_BY_IDS, params);
-            assert result != null;
-            result.next();
-            counter = result.getInt(1);
-            return counter != 0;
+            for (int start = 0; start < titles.size(); start += DBManager.BATCH_CHUNK_SIZE) {
+                List<String> chunk = DBTools.padInList(titles.subList(start, Math.min(titles.size(), start + DBManager.BATCH_CHUNK_SIZE)));
+                String sql = String.format(DBManager.COUNT_COUPONS_BY_COMPANY_ID_AND_TITLES, DBTools.placeholders(chunk.size()));
+                Binding params = binder -> {
+                    binder.bindInt(companyId);
+                    for (String title : chunk) {
+                        binder.bindString(title);
+                    }
+                };
+                if (DBTools.runQueryForInt(sql, params) != 0) {
+                    return true;
+                }
+            }
+            return false;
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.COUPON, CrudOperation.COUNT);
         }
     }
+
+    /**
+     * Checks whether the purchase of a Coupon corresponding to the coupon ID by a Customer corresponding to the customer ID
+     * exists. Answered from PurchaseIndex, which reads the Customer's purchases from MySQL database only on first use.
+     *
+     * @param couponId   The Coupon ID being checked
+     * @param customerId The Customer ID being checked
+     * @return true -> purchase of the coupon by the customer exists, false -> purchase does not exist
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public boolean isPurchaseExistByIds(Integer couponId, Integer customerId) throws EntityCrudException {
+        return PurchaseIndex.getInstance().contains(customerId, couponId);
+    }
 }
@@ -3,13 +3,24 @@ package DBDAO;
 import Beans.Customer;
 import Exceptions.EntityCrudException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface CustomerDAO {
     void createCustomer(Customer customer) throws EntityCrudException;
+    void createCustomers(List<Customer> customers) throws EntityCrudException;
     Customer readCustomer(Integer customerId) throws EntityCrudException;
+    Customer readCustomer(Integer customerId, FetchMode fetchMode) throws EntityCrudException;
+    Map<Integer, Customer> readCustomers(Collection<Integer> customerIds) throws EntityCrudException;
     List<Customer> readAllCustomers() throws EntityCrudException;
+    List<Customer> readCustomersAfterId(Integer afterId, int limit) throws EntityCrudException;
+    List<Customer> readAllCustomersWithCoupons() throws EntityCrudException;
+    List<Customer> readCustomersWithCouponsAfterId(Integer afterId, int limit) throws EntityCrudException;
+    Stream<Customer> streamAllCustomers() throws EntityCrudException;
     void updateCustomer(Customer customer) throws EntityCrudException;
     void deleteCustomer(Integer customerId) throws EntityCrudException;
     boolean isCustomerExist(String email) throws EntityCrudException;
+    boolean isAnyCustomerExist(List<String> emails) throws EntityCrudException;
 }
@@ -1,25 +1,39 @@
 package DBDAO;
 
+import Beans.Coupon;
 import Beans.Customer;
+import Beans.LazyList;
+import DB.BatchBinding;
+import DB.Binding;
 import DB.DBManager;
 import DB.DBTools;
 import DB.ObjectExtractionUtil;
 import Exceptions.CrudOperation;
+import Exceptions.DBStreamException;
 import Exceptions.EntityCrudException;
 import Exceptions.EntityType;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Class containing all Create-Read-Update-Delete methods for "customers" tables.
  */
 public class CustomerDBDAO implements CustomerDAO {
     private static CustomerDBDAO instance;
+    private static final BatchBinding<Customer> CUSTOMER_BINDING = (binder, customer) -> binder
+            .bindString(customer.getFirstName())
+            .bindString(customer.getLastName())
+            .bindString(customer.getEmail())
+            .bindString(customer.getPassword());
 
     /**
      * Private constructor for CustomerDBDAO.
@@ -51,11 +65,8 @@ public class CustomerDBDAO implements CustomerDAO {
      */
     @Override
     public void createCustomer(Customer customer) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customer.getFirstName());
-        params.put(2, customer.getLastName());
-        params.put(3, customer.getEmail());
-        params.put(4, customer.getPassword());
+        Binding params = binder -> CUSTOMER_BINDING.bind(binder, customer);
+        ExistenceFilter.getInstance().addCustomer(customer.getEmail());
         try {
             System.out.println("Created Customer: " + DBTools.runQuery(DBManager.CREATE_CUSTOMER, params));
         } catch (SQLException e) {
@@ -63,9 +74,26 @@ public class CustomerDBDAO implements CustomerDAO {
         }
     }
 
+    /**
+     * Create Customer records in MySQL database as JDBC batches of BATCH_CHUNK_SIZE, one transaction per chunk.
+     *
+     * @param customers Customer instances to create records by
+     * @throws EntityCrudException Thrown if Create in MySQL was unsuccessful, previously committed chunks stay written
+     */
+    @Override
+    public void createCustomers(List<Customer> customers) throws EntityCrudException {
+        customers.forEach(customer -> ExistenceFilter.getInstance().addCustomer(customer.getEmail()));
+        try {
+            System.out.println("Created Customers: " + DBTools.runBatch(DBManager.CREATE_CUSTOMER, customers, CUSTOMER_BINDING));
+        } catch (SQLException e) {
+            System.out.println(e.getMessage());
+            throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.CREATE);
+        }
+    }
+
     /**
      * Returns an instance of Customer from MySQL database by customer ID number.
-     * Returns Customer ID number, First name, Last name and Email. Does not return password.
+     * Returns Customer ID number, First name, Last name and Email. Does not return password. The Coupon list is loaded lazily, on first access.
      *
      * @param customerId Customer ID number
      * @return Customer instance from MySQL database
@@ -73,14 +101,51 @@ public class CustomerDBDAO implements CustomerDAO {
      */
     @Override
     public Customer readCustomer(Integer customerId) throws EntityCrudException {
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customerId);
+        return readCustomer(customerId, FetchMode.LAZY);
+    }
+
+    /**
+     * Returns an instance of Customer from MySQL database by customer ID number.
+     * Returns Customer ID number, First name, Last name and Email. Does not return password.
+     *
+     * @param customerId Customer ID number
+     * @param fetchMode  LAZY -> Coupon list is loaded on first access, EAGER -> Coupon list is loaded right away
+     * @return Customer instance from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Customer readCustomer(Integer customerId, FetchMode fetchMode) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(customerId);
+        try {
+            Customer customer = DBTools.runQueryForObject(DBManager.READ_CUSTOMER_BY_ID, params, ObjectExtractionUtil::resultSetToCustomer);
+            if (customer == null) {
+                throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
+            }
+            if (fetchMode == FetchMode.EAGER) {
+                customer.setCoupons(CouponDBDAO.getInstance().readCouponsByCustomerId(customerId));
+            } else {
+                customer.setCoupons(new LazyList<>(() -> CouponDBDAO.getInstance().readCouponsByCustomerId(customerId)));
+            }
+            return customer;
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns the Customers of many customer ID numbers from MySQL database, read by chunked IN queries.
+     * Returns Customer ID number, First name, Last name and Email. Does not return password or Coupons.
+     * Customer ID numbers with no Customer are left out of the result.
+     *
+     * @param customerIds Customer ID numbers
+     * @return Map of customer ID number to Customer instance
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Customer> readCustomers(Collection<Integer> customerIds) throws EntityCrudException {
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_CUSTOMER_BY_ID, params);
-            assert result != null;
-            result.next();
-            return ObjectExtractionUtil.resultSetToCustomer(result, CouponDBDAO.getInstance().readCouponsByCustomerId(customerId));
+            return DBTools.runQueryForListByIds(DBManager.READ_CUSTOMERS_BY_IDS, customerIds, ObjectExtractionUtil::resultSetToCustomer)
+                    .stream().collect(Collectors.toMap(Customer::getId, Function.identity()));
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
         }
@@ -95,14 +160,75 @@ public class CustomerDBDAO implements CustomerDAO {
      */
     @Override
     public List<Customer> readAllCustomers() throws EntityCrudException {
-        ResultSet result;
-        List<Customer> customerList = new ArrayList<>();
         try {
-            result = DBTools.runQueryForResult(DBManager.READ_ALL_CUSTOMERS);
-            while (result.next()) {
-                customerList.add(ObjectExtractionUtil.resultSetToCustomer(result));
-            }
-            return customerList;
+            return DBTools.runQueryForList(DBManager.READ_ALL_CUSTOMERS, ObjectExtractionUtil::resultSetToCustomer);
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns up to limit Customers with an ID number greater than afterId, in ascending ID number order.
+     * Seeks on the primary key, so reading any page costs the same regardless of its depth.
+     * Returns Customer ID number, First name, Last name and Email. Does not return password.
+     *
+     * @param afterId ID number of the last Customer of the previous page, 0 for the first page
+     * @param limit   Maximum number of Customers to return
+     * @return List of Customers following afterId
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Customer> readCustomersAfterId(Integer afterId, int limit) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(afterId).bindInt(limit);
+        try {
+            return DBTools.runQueryForList(DBManager.READ_CUSTOMERS_AFTER_ID, params, ObjectExtractionUtil::resultSetToCustomer);
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Returns a List of all Customers in MySQL database, each with its purchased Coupon list, read by a single join.
+     * Returns Customer ID number, First name, Last name, Email and Coupons. Does not return password.
+     * A Coupon purchased by several Customers is a single shared instance in all their lists.
+     *
+     * @return List of all Customers with their Coupons, in ascending ID number order
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Customer> readAllCustomersWithCoupons() throws EntityCrudException {
+        return readCustomersWithCoupons(DBManager.READ_ALL_CUSTOMERS_WITH_COUPONS, Binding.NONE);
+    }
+
+    /**
+     * Returns up to limit Customers with an ID number greater than afterId, each with its purchased Coupon list,
+     * in ascending ID number order. The page of Customers and their Coupons are read by a single join.
+     * Returns Customer ID number, First name, Last name, Email and Coupons. Does not return password.
+     * A Coupon purchased by several Customers on the page is a single shared instance in all their lists.
+     *
+     * @param afterId ID number of the last Customer of the previous page, 0 for the first page
+     * @param limit   Maximum number of Customers to return
+     * @return List of Customers following afterId with their Coupons
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public List<Customer> readCustomersWithCouponsAfterId(Integer afterId, int limit) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(afterId).bindInt(limit);
+        return readCustomersWithCoupons(DBManager.READ_CUSTOMERS_WITH_COUPONS_AFTER_ID, params);
+    }
+
+    /**
+     * Returns a lazy Stream of all Customers in MySQL database, read through a cursor STREAM_FETCH_SIZE rows at a time.
+     * Returns Customer ID number, First name, Last name and Email. Does not return password.
+     * Holds a Connection until exhausted or closed, so it should be consumed in a try-with-resources block.
+     *
+     * @return Stream of all Customers in MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Stream<Customer> streamAllCustomers() throws EntityCrudException {
+        try {
+            return DBTools.streamQuery(DBManager.READ_ALL_CUSTOMERS, ObjectExtractionUtil::resultSetToCustomer);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
         }
@@ -117,12 +243,13 @@ public class CustomerDBDAO implements CustomerDAO {
      */
     @Override
     public void updateCustomer(Customer customer) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customer.getFirstName());
-        params.put(2, customer.getLastName());
-        params.put(3, customer.getEmail());
-        params.put(4, customer.getPassword());
-        params.put(5, customer.getId());
+        Binding params = binder -> binder
+                .bindString(customer.getFirstName())
+                .bindString(customer.getLastName())
+                .bindString(customer.getEmail())
+                .bindString(customer.getPassword())
+                .bindInt(customer.getId());
+        ExistenceFilter.getInstance().addCustomer(customer.getEmail());
         try {
             System.out.println("Updated Customer: " + DBTools.runQuery(DBManager.UPDATE_CUSTOMER_BY_ID, params));
         } catch (SQLException e) {
@@ -138,10 +265,10 @@ public class CustomerDBDAO implements CustomerDAO {
      */
     @Override
     public void deleteCustomer(Integer customerId) throws EntityCrudException {
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, customerId);
+        Binding params = binder -> binder.bindInt(customerId);
         try {
             System.out.println("Deleted Customer: " + DBTools.runQuery(DBManager.DELETE_CUSTOMER_BY_ID, params));
+            PurchaseIndex.getInstance().removeCustomer(customerId);
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.DELETE);
         }
@@ -149,7 +276,7 @@ public class CustomerDBDAO implements CustomerDAO {
 
     /**
      * Checks whether the Customer corresponding to the email argument exists in MySQL database
-     * by counting the customers that meet the criteria.
+     * by counting the customers that meet the criteria. Skips MySQL if ExistenceFilter rules the email out.
      *
      * @param email Customer email
      * @return true -> customer exists, false -> customer does not exist
@@ -157,20 +284,84 @@ public class CustomerDBDAO implements CustomerDAO {
      */
     @Override
     public boolean isCustomerExist(String email) throws EntityCrudException {
-        int counter;
-        ResultSet result;
-        Map<Integer, Object> params = new HashMap<>();
-        params.put(1, email);
+        if (!ExistenceFilter.getInstance().mightContainCustomer(email)) {
+            ExistenceFilter.getInstance().countSavedQuery();
+            return false;
+        }
+        Binding params = binder -> binder.bindString(email);
         try {
-            result = DBTools.runQueryForResult(DBManager.COUNT_CUSTOMERS_BY_EMAIL, params);
-            assert result != null;
-            result.next();
-            counter = result.getInt(1);
-            return counter != 0;
+            return DBTools.runQueryForInt(DBManager.COUNT_CUSTOMERS_BY_EMAIL, params) != 0;
         } catch (SQLException e) {
             throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.COUNT);
         }
     }
-}
 
+    /**
+     * Checks whether any of the emails argument already belongs to a Customer in MySQL database,
+     * counting the matching customers BATCH_CHUNK_SIZE emails at a time. Only emails ExistenceFilter can not rule out
+     * are counted.
+     *
+     * @param emails Customer emails
+     * @return true -> at least one customer exists, false -> none of the customers exist
+     * @throws EntityCrudException Thrown if count in MySQL was unsuccessful
+     */
+    @Override
+    public boolean isAnyCustomerExist(List<String> emails) throws EntityCrudException {
+        ExistenceFilter filter = ExistenceFilter.getInstance();
+        List<String> candidates = emails.stream().filter(filter::mightContainCustomer).collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            filter.countSavedQuery();
+            return false;
+        }
+        try {
+            for (int start = 0; start < candidates.size(); start += DBManager.BATCH_CHUNK_SIZE) {
+                List<String> chunk = new ArrayList<>(candidates.subList(start, Math.min(candidates.size(), start + DBManager.BATCH_CHUNK_SIZE)));
+                String sql = String.format(DBManager.COUNT_CUSTOMERS_BY_EMAILS, DBTools.placeholders(chunk.size()));
+                Binding params = binder -> {
+                    for (String email : chunk) {
+                        binder.bindString(email);
+                    }
+                };
+                if (DBTools.runQueryForInt(sql, params) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.COUNT);
+        }
+    }
 
+    /**
+     * Streams the rows of a Customer-Coupon join ordered by Customer ID number, and groups them into Customers in
+     * one pass. Each Coupon is built once and shared by every Customer that purchased it.
+     *
+     * @param sql    SQL script joining customers, customer_to_coupon and coupons
+     * @param params parameter input for SQL script
+     * @return List of Customers with their Coupons, in the order of the rows
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    private List<Customer> readCustomersWithCoupons(String sql, Binding params) throws EntityCrudException {
+        List<Customer> customers = new ArrayList<>();
+        Map<Integer, Coupon> coupons = new HashMap<>();
+        try (Stream<Map.Entry<Customer, Coupon>> rows = DBTools.streamQuery(sql, params,
+                result -> new AbstractMap.SimpleImmutableEntry<>(
+                        ObjectExtractionUtil.resultSetToCustomer(result),
+                        ObjectExtractionUtil.resultSetToCouponIfPresent(result)))) {
+            rows.forEachOrdered(row -> {
+                Customer customer = customers.isEmpty() ? null : customers.get(customers.size() - 1);
+                if (customer == null || customer.getId() != row.getKey().getId()) {
+                    customer = row.getKey();
+                    customer.setCoupons(new ArrayList<>());
+                    customers.add(customer);
+                }
+                if (row.getValue() != null) {
+                    customer.getCoupons().add(coupons.computeIfAbsent(row.getValue().getId(), id -> row.getValue()));
+                }
+            });
+        } catch (SQLException | DBStreamException e) {
+            throw new EntityCrudException(EntityType.CUSTOMER, CrudOperation.READ);
+        }
+        return customers;
+    }
+}
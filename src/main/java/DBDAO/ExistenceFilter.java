@@ -0,0 +1,298 @@
+package DBDAO;
+
+import Beans.Company;
+import DB.Binding;
+import DB.DBManager;
+import DB.DBTools;
+import DB.DatabaseInitializer;
+import Util.BloomFilter;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter of Company names, Company emails and Customer emails, letting existence checks skip MySQL for values
+ * that were never stored. Class is singleton.
+ * The filter is built from the "companies" and "customers" tables on first use, and rebuilt when it outgrows its size
+ * or the tables are recreated. Values are added before they are written, so a value never misses the filter while it
+ * is in the database. Values added while there is no filter, or while one is being built, are also kept aside until a
+ * build succeeds, so a build that reads the tables before their insert commits still contains them. If more than
+ * EXISTENCE_FILTER_MAX_PENDING values pile up that way, e.g. while MySQL keeps failing the build, they are let go and
+ * the filter is turned off, so every check goes to MySQL until the tables are recreated.
+ * Updated and deleted values stay in the filter and only cost a database check.
+ * MySQL compares the columns case-insensitively, so values are lowercased with control characters and trailing spaces
+ * removed before filtering. Values with non-ASCII characters, whose collation rules are wider, always go to MySQL.
+ * Assumes this process is the only writer of the two tables. If the filter can not be built, every check goes to MySQL.
+ */
+public class ExistenceFilter {
+    private static ExistenceFilter instance = null;
+    private static final String COMPANY_NAME = "company-name:";
+    private static final String COMPANY_EMAIL = "company-email:";
+    private static final String CUSTOMER_EMAIL = "customer-email:";
+    private final LongAdder savedQueries = new LongAdder();
+    private volatile BloomFilter filter;
+    private BloomFilter building;
+    private boolean claimed;
+    private volatile boolean disabled;
+    private final Set<String> pending = new HashSet<>();
+
+    /**
+     * Private constructor for ExistenceFilter. Drops the filter whenever the tables are recreated.
+     */
+    private ExistenceFilter() {
+        DatabaseInitializer.addTablesCreatedListener(this::invalidate);
+    }
+
+    /**
+     * Static method for retrieving and/or initiating an instance of ExistenceFilter.
+     *
+     * @return ExistenceFilter instance
+     */
+    public static ExistenceFilter getInstance() {
+        if (instance == null) {
+            synchronized (ExistenceFilter.class) {
+                if (instance == null) {
+                    instance = new ExistenceFilter();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether a Company with the name or the email may exist.
+     *
+     * @param name  Company name
+     * @param email Company email
+     * @return true -> company may exist and MySQL must be checked, false -> company definitely does not exist
+     */
+    public boolean mightContainCompany(String name, String email) {
+        return mightContain(COMPANY_NAME, name) || mightContain(COMPANY_EMAIL, email);
+    }
+
+    /**
+     * Checks whether a Customer with the email may exist.
+     *
+     * @param email Customer email
+     * @return true -> customer may exist and MySQL must be checked, false -> customer definitely does not exist
+     */
+    public boolean mightContainCustomer(String email) {
+        return mightContain(CUSTOMER_EMAIL, email);
+    }
+
+    /**
+     * Counts a database existence check skipped thanks to the filter.
+     */
+    void countSavedQuery() {
+        savedQueries.increment();
+    }
+
+    /**
+     * Returns the number of database existence checks skipped thanks to the filter.
+     *
+     * @return Saved query count
+     */
+    public long getSavedQueryCount() {
+        return savedQueries.sum();
+    }
+
+    /**
+     * Adds the name and email of a Company about to be created or updated.
+     *
+     * @param company Company instance
+     */
+    void addCompany(Company company) {
+        add(COMPANY_NAME, company.getName());
+        add(COMPANY_EMAIL, company.getEmail());
+    }
+
+    /**
+     * Adds the email of a Customer about to be created or updated.
+     *
+     * @param email Customer email
+     */
+    void addCustomer(String email) {
+        add(CUSTOMER_EMAIL, email);
+    }
+
+    /**
+     * Drops the filter, so it is rebuilt from the tables on next use. Values kept aside for a build are dropped too,
+     * as the tables were recreated, and a filter turned off is turned back on.
+     */
+    public synchronized void invalidate() {
+        filter = null;
+        pending.clear();
+        disabled = false;
+    }
+
+    /**
+     * Checks a single value against the filter, building the filter first if needed.
+     *
+     * @param namespace Value kind prefix
+     * @param value     Value to look up
+     * @return true -> value may exist or can not be filtered, false -> value definitely does not exist
+     */
+    private boolean mightContain(String namespace, String value) {
+        String key = toKey(namespace, value);
+        if (key == null || disabled) {
+            return true;
+        }
+        BloomFilter current = filter;
+        if (current == null || current.isOverCapacity()) {
+            current = rebuild();
+        }
+        return current == null || current.mightContain(key);
+    }
+
+    /**
+     * Adds a single value to the filter and to a filter being built. Without a filter, or while one is being built,
+     * the value is also kept aside for the next build, in case that build reads the tables before the value is written.
+     * Turns the filter off once more than EXISTENCE_FILTER_MAX_PENDING values are kept aside.
+     *
+     * @param namespace Value kind prefix
+     * @param value     Value to add
+     */
+    private synchronized void add(String namespace, String value) {
+        String key = toKey(namespace, value);
+        if (key == null || disabled) {
+            return;
+        }
+        if (filter != null) {
+            filter.put(key);
+        }
+        if (building != null) {
+            building.put(key);
+        }
+        if (filter == null || building != null || claimed) {
+            pending.add(key);
+        }
+        if (pending.size() > DBManager.EXISTENCE_FILTER_MAX_PENDING) {
+            filter = null;
+            building = null;
+            pending.clear();
+            disabled = true;
+            System.out.println("Turned off existence filter: too many values waiting for a build");
+        }
+    }
+
+    /**
+     * Builds a new filter from the primary database, sized for twice the current rows and at least
+     * EXISTENCE_FILTER_MIN_CAPACITY values. Values kept aside by add, and values added while the tables are read, also
+     * go into the new filter; they are let go once it is installed, and kept for the next build if this one fails.
+     * Only one thread builds at a time; others keep using the current filter or MySQL meanwhile. The build is claimed
+     * under the lock, but the tables are counted and read outside of it, so add is never held up by MySQL.
+     *
+     * @return New filter, or the current one if another thread is building, or null if the build failed
+     */
+    private BloomFilter rebuild() {
+        synchronized (this) {
+            if (disabled) {
+                return null;
+            }
+            if (building != null || claimed) {
+                return filter;
+            }
+            if (filter != null && !filter.isOverCapacity()) {
+                return filter;
+            }
+            claimed = true;
+        }
+        int rows;
+        try {
+            rows = DBTools.runInTransaction(transaction ->
+                    2 * transaction.queryForInt(DBManager.COUNT_COMPANIES, Binding.NONE)
+                            + transaction.queryForInt(DBManager.COUNT_CUSTOMERS, Binding.NONE));
+        } catch (SQLException e) {
+            synchronized (this) {
+                claimed = false;
+            }
+            return null;
+        }
+        BloomFilter next = new BloomFilter(Math.max(DBManager.EXISTENCE_FILTER_MIN_CAPACITY, 2L * rows),
+                DBManager.EXISTENCE_FILTER_FALSE_POSITIVE_RATE);
+        synchronized (this) {
+            claimed = false;
+            if (disabled) {
+                return null;
+            }
+            pending.forEach(next::put);
+            building = next;
+        }
+        try {
+            List<String[]> companies = DBTools.runInTransaction(transaction -> transaction.queryForList(
+                    DBManager.READ_ALL_COMPANY_NAMES_AND_EMAILS, Binding.NONE,
+                    result -> new String[]{result.getString(1), result.getString(2)}));
+            for (String[] company : companies) {
+                putKey(next, COMPANY_NAME, company[0]);
+                putKey(next, COMPANY_EMAIL, company[1]);
+            }
+            List<String> customerEmails = DBTools.runInTransaction(transaction -> transaction.queryForList(
+                    DBManager.READ_ALL_CUSTOMER_EMAILS, Binding.NONE, result -> result.getString(1)));
+            for (String email : customerEmails) {
+                putKey(next, CUSTOMER_EMAIL, email);
+            }
+        } catch (SQLException e) {
+            synchronized (this) {
+                building = null;
+            }
+            return null;
+        }
+        synchronized (this) {
+            if (building != next) {
+                return null;
+            }
+            filter = next;
+            building = null;
+            pending.clear();
+        }
+        System.out.println("Built existence filter: " + next.getBitCount() + " bits, " + next.getHashCount() + " hashes");
+        return next;
+    }
+
+    /**
+     * Adds a value read from the tables to a filter being built.
+     *
+     * @param target    Filter being built
+     * @param namespace Value kind prefix
+     * @param value     Value to add
+     */
+    private void putKey(BloomFilter target, String namespace, String value) {
+        String key = toKey(namespace, value);
+        if (key != null) {
+            target.put(key);
+        }
+    }
+
+    /**
+     * Converts a value to its filter key, matching how MySQL compares the column for ASCII values.
+     *
+     * @param namespace Value kind prefix
+     * @param value     Value to convert
+     * @return Filter key, or null if the value is null or has non-ASCII characters
+     */
+    private static String toKey(String namespace, String value) {
+        if (value == null) {
+            return null;
+        }
+        StringBuilder key = new StringBuilder(namespace.length() + value.length()).append(namespace);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c > 0x7e) {
+                return null;
+            }
+            if (c >= 0x20) {
+                key.append(c);
+            }
+        }
+        int end = key.length();
+        while (end > namespace.length() && key.charAt(end - 1) == ' ') {
+            end--;
+        }
+        key.setLength(end);
+        return key.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,6 @@
+package DBDAO;
+
+public enum FetchMode {
+    LAZY,
+    EAGER;
+}
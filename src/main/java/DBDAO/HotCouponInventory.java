@@ -0,0 +1,268 @@
+package DBDAO;
+
+import DB.Binding;
+import DB.DBManager;
+import DB.DBTools;
+import DB.DatabaseInitializer;
+import Exceptions.CrudOperation;
+import Exceptions.EntityCrudException;
+import Exceptions.EntityType;
+import Util.StripedCounter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the remaining amount of designated flash-sale Coupons in in-process StripedCounters. Class is singleton.
+ * Purchases of a hot Coupon reserve a unit in memory first, so sold-out attempts never lock or update a row,
+ * and then persist the purchase record. The "coupons.amount" column of hot Coupons is reconciled asynchronously.
+ * The "hot_inventory" table stores each hot Coupon's amount at designation time and the units sold since, counted in
+ * the purchase transaction itself, so the remaining amount survives a crash or restart. Deleting a Customer, whose
+ * purchase records go with it, does not give the units back.
+ * The counters are recovered again whenever the tables are recreated.
+ */
+public class HotCouponInventory {
+    private static HotCouponInventory instance = null;
+    private final Map<Integer, StripedCounter> counters = new ConcurrentHashMap<>();
+    private final Set<Integer> unreconciled = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService reconciler;
+
+    /**
+     * Private constructor for HotCouponInventory. Recovers the counters of Coupons that were hot before a restart,
+     * and again whenever the tables are recreated.
+     */
+    private HotCouponInventory() {
+        recoverOrReport();
+        DatabaseInitializer.addTablesCreatedListener(this::recoverOrReport);
+        reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hot-inventory-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileAll, DBManager.HOT_INVENTORY_RECONCILE_INTERVAL_MILLIS,
+                DBManager.HOT_INVENTORY_RECONCILE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Static method for retrieving and/or initiating an instance of HotCouponInventory.
+     *
+     * @return HotCouponInventory instance
+     */
+    public static HotCouponInventory getInstance() {
+        if (instance == null) {
+            synchronized (HotCouponInventory.class) {
+                if (instance == null) {
+                    instance = new HotCouponInventory();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Rebuilds every counter from the "hot_inventory" table, discarding the in-memory state, including Coupons waiting
+     * for reconciliation. Runs on start-up and whenever the tables were recreated. Reads from the primary database,
+     * as a lagging replica could miss purchases and cause overselling.
+     *
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    public void recover() throws EntityCrudException {
+        List<long[]> remaining = readRemaining(DBManager.READ_HOT_INVENTORY, Binding.NONE);
+        counters.clear();
+        unreconciled.clear();
+        remaining.forEach(this::load);
+    }
+
+    /**
+     * Recovers the counters, reporting instead of throwing if MySQL can not be read.
+     */
+    private void recoverOrReport() {
+        try {
+            recover();
+        } catch (EntityCrudException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the remaining amount of hot Coupons from the primary database.
+     *
+     * @param sql    SQL script returning coupon ID and remaining amount pairs
+     * @param params parameter input for SQL script
+     * @return Pairs of coupon ID and remaining amount
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    private List<long[]> readRemaining(String sql, Binding params) throws EntityCrudException {
+        try {
+            return DBTools.runInTransaction(transaction ->
+                    transaction.queryForList(sql, params, result -> new long[]{result.getInt(1), result.getLong(2)}));
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
+        }
+    }
+
+    /**
+     * Loads the counter of a single hot Coupon and schedules its amount for reconciliation.
+     *
+     * @param row Pair of coupon ID and remaining amount
+     */
+    private void load(long[] row) {
+        counters.put((int) row[0], new StripedCounter(Math.max(0, row[1]), DBManager.HOT_INVENTORY_STRIPES));
+        unreconciled.add((int) row[0]);
+    }
+
+    /**
+     * Designates a Coupon as hot. Its current amount is recorded in "hot_inventory" while the Coupon row is locked, then its counter is loaded. Meant to be called before the sale opens.
+     *
+     * @param couponId Coupon ID number
+     * @throws EntityCrudException Thrown if the Coupon does not exist or Create in MySQL was unsuccessful
+     */
+    public void designate(Integer couponId) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(couponId);
+        try {
+            boolean exists = DBTools.runInTransaction(transaction -> {
+                if (transaction.queryForObject(DBManager.LOCK_COUPON_BY_ID, params, result -> result.getInt(1)) == null) {
+                    return false;
+                }
+                transaction.update(DBManager.CREATE_HOT_INVENTORY, params);
+                return true;
+            });
+            if (!exists) {
+                throw new EntityCrudException(EntityType.COUPON, CrudOperation.READ);
+            }
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COUPON, CrudOperation.CREATE);
+        }
+        if (!isHot(couponId)) {
+            readRemaining(DBManager.READ_HOT_INVENTORY_BY_COUPON_ID, params).forEach(this::load);
+        }
+        System.out.println("Designated hot Coupon: " + couponId);
+    }
+
+    /**
+     * Ends the hot mode of a Coupon. Writes its final amount to "coupons.amount" and removes its "hot_inventory" row,
+     * after which its purchases go through the regular database path again.
+     *
+     * @param couponId Coupon ID number
+     * @throws EntityCrudException Thrown if Update or Delete in MySQL was unsuccessful
+     */
+    public void release(Integer couponId) throws EntityCrudException {
+        Binding params = binder -> binder.bindInt(couponId);
+        forget(couponId);
+        try {
+            DBTools.runInTransaction(transaction -> {
+                transaction.update(DBManager.RECONCILE_HOT_COUPON_AMOUNT, params);
+                return transaction.update(DBManager.DELETE_HOT_INVENTORY_BY_COUPON_ID, params);
+            });
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.COUPON, CrudOperation.UPDATE);
+        }
+        System.out.println("Released hot Coupon: " + couponId);
+    }
+
+    /**
+     * Checks whether a Coupon is currently hot.
+     *
+     * @param couponId Coupon ID number
+     * @return true -> purchases go through the in-memory counter, false -> regular purchase
+     */
+    public boolean isHot(Integer couponId) {
+        return counters.containsKey(couponId);
+    }
+
+    /**
+     * Confirms that a Coupon held as hot in memory still has its "hot_inventory" row, dropping its counter if the row
+     * is gone, e.g. because the Coupon was deleted. Reads from the primary database.
+     *
+     * @param couponId Coupon ID number
+     * @return true -> Coupon is still hot, false -> regular purchase
+     * @throws SQLException Thrown if count in MySQL was unsuccessful
+     */
+    boolean isStillHot(Integer couponId) throws SQLException {
+        if (!isHot(couponId)) {
+            return false;
+        }
+        Binding params = binder -> binder.bindInt(couponId);
+        if (DBTools.runInTransaction(transaction -> transaction.queryForInt(DBManager.COUNT_HOT_INVENTORY_BY_COUPON_ID, params)) == 0) {
+            forget(couponId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserves one unit of a hot Coupon in memory.
+     *
+     * @param couponId Coupon ID number
+     * @return true -> a unit was reserved and must be persisted or given back, false -> sold out
+     */
+    boolean reserve(Integer couponId) {
+        StripedCounter counter = counters.get(couponId);
+        return counter != null && counter.tryDecrement();
+    }
+
+    /**
+     * Gives back a reserved unit whose purchase was not persisted.
+     *
+     * @param couponId Coupon ID number
+     */
+    void cancel(Integer couponId) {
+        StripedCounter counter = counters.get(couponId);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Drops the counter of a Coupon that is no longer hot in MySQL, e.g. because it was released or deleted.
+     *
+     * @param couponId Coupon ID number
+     */
+    void forget(Integer couponId) {
+        counters.remove(couponId);
+        unreconciled.remove(couponId);
+    }
+
+    /**
+     * Marks a hot Coupon's "coupons.amount" column as stale after a persisted purchase.
+     *
+     * @param couponId Coupon ID number
+     */
+    void markPurchased(Integer couponId) {
+        unreconciled.add(couponId);
+    }
+
+    /**
+     * Returns the remaining amount of a hot Coupon as held in memory.
+     *
+     * @param couponId Coupon ID number
+     * @return Remaining amount, or -1 if the Coupon is not hot
+     */
+    public long getRemaining(Integer couponId) {
+        StripedCounter counter = counters.get(couponId);
+        return counter == null ? -1 : counter.sum();
+    }
+
+    /**
+     * Recomputes "coupons.amount" of every hot Coupon purchased since the last run from its units sold.
+     * Run periodically by the reconciler thread.
+     */
+    private void reconcileAll() {
+        for (Integer couponId : unreconciled) {
+            unreconciled.remove(couponId);
+            Binding params = binder -> binder.bindInt(couponId);
+            try {
+                DBTools.runQuery(DBManager.RECONCILE_HOT_COUPON_AMOUNT, params);
+            } catch (SQLException e) {
+                unreconciled.add(couponId);
+                System.out.println("Failed to reconcile hot Coupon " + couponId + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package DBDAO;
+
+import DB.Binding;
+import DB.DBManager;
+import DB.DBTools;
+import DB.DatabaseInitializer;
+import Exceptions.CrudOperation;
+import Exceptions.EntityCrudException;
+import Exceptions.EntityType;
+import Util.BoundedCache;
+import Util.IntHashSet;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of the Coupons each Customer purchased, answering purchase membership checks without SQL.
+ * Class is singleton. A Customer's purchased coupon IDs are loaded from "customer_to_coupon" on first use into an
+ * IntHashSet, and kept up to date by CouponDBDAO, CustomerDBDAO and CompanyDBDAO as purchases are added and
+ * Coupons, Customers or Companies are deleted. Up to PURCHASE_INDEX_MAX_CUSTOMERS least recently checked Customers are
+ * held. Purchases are loaded from the primary database, as a lagging replica could miss recent ones. A set read while
+ * the index changed is used but not kept, as it may predate the change.
+ */
+public class PurchaseIndex {
+    private static PurchaseIndex instance = null;
+    private final BoundedCache<Integer, IntHashSet> purchases =
+            new BoundedCache<>(DBManager.PURCHASE_INDEX_MAX_CUSTOMERS, 0);
+    private final AtomicLong modifications = new AtomicLong();
+
+    /**
+     * Private constructor for PurchaseIndex. Clears the index whenever the tables are recreated.
+     */
+    private PurchaseIndex() {
+        DatabaseInitializer.addTablesCreatedListener(this::clear);
+    }
+
+    /**
+     * Static method for retrieving and/or initiating an instance of PurchaseIndex.
+     *
+     * @return PurchaseIndex instance
+     */
+    public static PurchaseIndex getInstance() {
+        if (instance == null) {
+            synchronized (PurchaseIndex.class) {
+                if (instance == null) {
+                    instance = new PurchaseIndex();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether a Customer purchased a Coupon, loading the Customer's purchases on first use.
+     *
+     * @param customerId Customer ID number
+     * @param couponId   Coupon ID number
+     * @return true -> purchase exists, false -> purchase does not exist
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    public boolean contains(Integer customerId, Integer couponId) throws EntityCrudException {
+        IntHashSet couponIds = load(customerId);
+        synchronized (couponIds) {
+            return couponIds.contains(couponId);
+        }
+    }
+
+    /**
+     * Checks whether a Customer's purchases are loaded and include a Coupon, without reading MySQL.
+     *
+     * @param customerId Customer ID number
+     * @param couponId   Coupon ID number
+     * @return true -> purchase is known to exist, false -> purchase does not exist or the Customer is not loaded
+     */
+    boolean isKnownPurchase(Integer customerId, Integer couponId) {
+        IntHashSet couponIds = purchases.get(customerId);
+        if (couponIds == null) {
+            return false;
+        }
+        synchronized (couponIds) {
+            return couponIds.contains(couponId);
+        }
+    }
+
+    /**
+     * Records a committed purchase in the loaded purchases of its Customer.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     */
+    void add(Integer customerId, Integer couponId) {
+        IntHashSet couponIds;
+        synchronized (this) {
+            modifications.incrementAndGet();
+            couponIds = purchases.get(customerId);
+        }
+        if (couponIds != null) {
+            synchronized (couponIds) {
+                couponIds.add(couponId);
+            }
+        }
+    }
+
+    /**
+     * Removes a deleted Coupon from the loaded purchases of every Customer.
+     *
+     * @param couponId Coupon ID number
+     */
+    void removeCoupon(Integer couponId) {
+        synchronized (this) {
+            modifications.incrementAndGet();
+        }
+        purchases.forEachValue(couponIds -> {
+            synchronized (couponIds) {
+                couponIds.remove(couponId);
+            }
+        });
+    }
+
+    /**
+     * Removes deleted Coupons from the loaded purchases of every Customer, visiting each Customer once.
+     *
+     * @param couponIds Coupon ID numbers
+     */
+    void removeCoupons(List<Integer> couponIds) {
+        if (couponIds.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            modifications.incrementAndGet();
+        }
+        purchases.forEachValue(purchased -> {
+            synchronized (purchased) {
+                for (Integer couponId : couponIds) {
+                    purchased.remove(couponId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops the purchases of a deleted Customer.
+     *
+     * @param customerId Customer ID number
+     */
+    synchronized void removeCustomer(Integer customerId) {
+        modifications.incrementAndGet();
+        purchases.remove(customerId);
+    }
+
+    /**
+     * Drops every loaded Customer, e.g. after many Coupons were deleted at once.
+     */
+    public synchronized void clear() {
+        modifications.incrementAndGet();
+        purchases.clear();
+    }
+
+    /**
+     * Returns the number of Customers whose purchases are loaded.
+     *
+     * @return Number of loaded Customers
+     */
+    public int getCustomerCount() {
+        return purchases.size();
+    }
+
+    /**
+     * Returns the number of purchases held in the index.
+     *
+     * @return Number of purchases
+     */
+    public long getPurchaseCount() {
+        long[] count = new long[1];
+        purchases.forEachValue(couponIds -> {
+            synchronized (couponIds) {
+                count[0] += couponIds.size();
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Returns the approximate heap footprint of the loaded sets, not counting the per-Customer cache entries.
+     *
+     * @return Approximate size in bytes
+     */
+    public long getMemoryUsageBytes() {
+        long[] bytes = new long[1];
+        purchases.forEachValue(couponIds -> {
+            synchronized (couponIds) {
+                bytes[0] += couponIds.memoryBytes();
+            }
+        });
+        return bytes[0];
+    }
+
+    /**
+     * Returns the approximate heap footprint of the loaded sets scaled to one million purchases.
+     *
+     * @return Approximate bytes per million purchases, or 0 if the index is empty
+     */
+    public long getMemoryUsageBytesPerMillionPurchases() {
+        long purchaseCount = getPurchaseCount();
+        return purchaseCount == 0 ? 0 : getMemoryUsageBytes() * 1_000_000 / purchaseCount;
+    }
+
+    /**
+     * Returns the purchases of a Customer, reading them from MySQL database if they are not loaded.
+     *
+     * @param customerId Customer ID number
+     * @return Set of purchased coupon IDs; synchronize on it while using it
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    private IntHashSet load(Integer customerId) throws EntityCrudException {
+        IntHashSet couponIds = purchases.get(customerId);
+        if (couponIds != null) {
+            return couponIds;
+        }
+        long modificationsBefore = modifications.get();
+        Binding params = binder -> binder.bindInt(customerId);
+        List<Integer> rows;
+        try {
+            rows = DBTools.runInTransaction(transaction ->
+                    transaction.queryForList(DBManager.READ_COUPON_IDS_BY_CUSTOMER_ID, params, result -> result.getInt(1)));
+        } catch (SQLException e) {
+            throw new EntityCrudException(EntityType.PURCHASE, CrudOperation.READ);
+        }
+        couponIds = new IntHashSet(rows.size());
+        for (Integer couponId : rows) {
+            couponIds.add(couponId);
+        }
+        synchronized (this) {
+            if (modifications.get() == modificationsBefore) {
+                purchases.put(customerId, couponIds);
+            }
+        }
+        return couponIds;
+    }
+}
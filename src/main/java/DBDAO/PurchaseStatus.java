@@ -0,0 +1,8 @@
+package DBDAO;
+
+public enum PurchaseStatus {
+    PURCHASED,
+    ALREADY_PURCHASED,
+    SOLD_OUT,
+    EXPIRED
+}
@@ -0,0 +1,178 @@
+package DBDAO;
+
+import DB.BatchBinding;
+import DB.Binding;
+import DB.DBManager;
+import DB.DBTools;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group-commit pipeline for "customer_to_coupon" purchase records. Class is singleton.
+ * Only the records are batched: each purchase lowers the amount of its Coupon in its own transaction before submitting.
+ * Purchases submitted by many threads are queued and written by a single writer thread as one multi-row insert and one
+ * commit, once PURCHASE_BATCH_MAX_ROWS purchases are waiting or the oldest one waited the max latency.
+ * Each caller's future completes only after the commit of its batch, i.e. once the purchase is durable.
+ * If a batch fails, its purchases are retried one by one, so a single bad row only fails its own future.
+ */
+public class PurchaseWriteBatcher {
+    private static PurchaseWriteBatcher instance = null;
+    private static final BatchBinding<PendingPurchase> PURCHASE_BINDING = (binder, purchase) -> binder
+            .bindInt(purchase.customerId)
+            .bindInt(purchase.couponId);
+    private static final PendingPurchase CLOSE_SIGNAL = new PendingPurchase(0, 0);
+    private final BlockingQueue<PendingPurchase> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile long maxLatencyMillis = DBManager.PURCHASE_BATCH_MAX_LATENCY_MILLIS;
+    private volatile boolean closed;
+
+    /**
+     * Private constructor for PurchaseWriteBatcher. Starts the writer thread.
+     */
+    private PurchaseWriteBatcher() {
+        writer = new Thread(this::writeLoop, "purchase-write-batcher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Static method for retrieving and/or initiating an instance of PurchaseWriteBatcher.
+     *
+     * @return PurchaseWriteBatcher instance
+     */
+    public static PurchaseWriteBatcher getInstance() {
+        if (instance == null) {
+            synchronized (PurchaseWriteBatcher.class) {
+                if (instance == null) {
+                    instance = new PurchaseWriteBatcher();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queues a purchase record for the next batch.
+     *
+     * @param customerId ID number of buying Customer
+     * @param couponId   ID number of bought Coupon
+     * @return Future completed once the purchase is committed, or completed exceptionally with the SQLException that
+     * rejected it
+     */
+    public CompletableFuture<Void> submit(Integer customerId, Integer couponId) {
+        PendingPurchase purchase = new PendingPurchase(customerId, couponId);
+        if (closed) {
+            purchase.result.completeExceptionally(new RejectedExecutionException("Purchase write batcher is closed"));
+            return purchase.result;
+        }
+        queue.add(purchase);
+        return purchase.result;
+    }
+
+    /**
+     * Sets how long a purchase may wait in the queue for more purchases to join its batch.
+     *
+     * @param maxLatencyMillis Max latency in milliseconds
+     */
+    public void setMaxLatencyMillis(long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    /**
+     * Stops accepting purchases, writes the ones already queued and waits for the writer thread to finish.
+     *
+     * @throws InterruptedException Thrown if waiting for the writer thread is interrupted
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        queue.add(CLOSE_SIGNAL);
+        writer.join();
+        PendingPurchase late;
+        while ((late = queue.poll()) != null) {
+            late.result.completeExceptionally(new RejectedExecutionException("Purchase write batcher is closed"));
+        }
+    }
+
+    /**
+     * Writer thread loop: waits for a first purchase, gathers more until the batch is full or the max latency passed,
+     * then writes the batch. Ends after writing everything queued before close() was called.
+     */
+    private void writeLoop() {
+        List<PendingPurchase> batch = new ArrayList<>(DBManager.PURCHASE_BATCH_MAX_ROWS);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                PendingPurchase next = queue.take();
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+                while (next != null) {
+                    if (next == CLOSE_SIGNAL) {
+                        closing = true;
+                    } else {
+                        batch.add(next);
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (closing || batch.size() >= DBManager.PURCHASE_BATCH_MAX_ROWS || remaining <= 0) {
+                        break;
+                    }
+                    next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                }
+            } catch (InterruptedException e) {
+                closing = true;
+            }
+            if (closing) {
+                queue.drainTo(batch);
+                batch.remove(CLOSE_SIGNAL);
+            }
+            for (int start = 0; start < batch.size(); start += DBManager.PURCHASE_BATCH_MAX_ROWS) {
+                write(batch.subList(start, Math.min(batch.size(), start + DBManager.PURCHASE_BATCH_MAX_ROWS)));
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Writes a batch as one multi-row insert in one transaction, falling back to one insert per purchase if it fails.
+     *
+     * @param batch Purchases to write
+     */
+    private void write(List<PendingPurchase> batch) {
+        try {
+            DBTools.runBatch(DBManager.ADD_COUPON_PURCHASE, batch, PURCHASE_BINDING, batch.size());
+            batch.forEach(purchase -> purchase.result.complete(null));
+            System.out.println("Added Coupon purchases: " + batch.size());
+        } catch (SQLException e) {
+            for (PendingPurchase purchase : batch) {
+                Binding params = binder -> PURCHASE_BINDING.bind(binder, purchase);
+                try {
+                    if (!DBTools.runQuery(DBManager.ADD_COUPON_PURCHASE, params)) {
+                        throw new SQLException("Purchase was not written", e);
+                    }
+                    purchase.result.complete(null);
+                } catch (SQLException rowFailure) {
+                    purchase.result.completeExceptionally(rowFailure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Purchase record waiting in the queue, together with the future of its caller.
+     */
+    private static class PendingPurchase {
+        private final int customerId;
+        private final int couponId;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingPurchase(int customerId, int couponId) {
+            this.customerId = customerId;
+            this.couponId = couponId;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package Exceptions;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when no Connection became available in the pool within the borrow timeout.
+ * Extends SQLException so it surfaces through the same paths as any other failed MySQL operation.
+ */
+public class ConnectionTimeoutException extends SQLException {
+    /**
+     * Thrown when no Connection became available in the pool within the borrow timeout.
+     */
+    public ConnectionTimeoutException() {
+        super("Timed out waiting for a database connection");
+    }
+
+    /**
+     * Thrown when no Connection became available in the pool within the borrow timeout.
+     *
+     * @param timeoutMillis Borrow timeout that elapsed, in milliseconds
+     */
+    public ConnectionTimeoutException(long timeoutMillis) {
+        super("Timed out after " + timeoutMillis + " ms waiting for a database connection");
+    }
+}
@@ -0,0 +1,16 @@
+package Exceptions;
+
+/**
+ * Thrown when reading the next row of a streamed query failed.
+ * Unchecked, as Stream operations can not declare checked exceptions.
+ */
+public class DBStreamException extends RuntimeException {
+    /**
+     * Thrown when reading the next row of a streamed query failed.
+     *
+     * @param cause SQLException thrown by the cursor
+     */
+    public DBStreamException(Throwable cause) {
+        super("Failed to read the next streamed row: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,16 @@
+package Exceptions;
+
+/**
+ * Thrown when a lazily loaded list failed to load on first access.
+ * Unchecked, as List methods can not declare checked exceptions.
+ */
+public class LazyLoadException extends RuntimeException {
+    /**
+     * Thrown when a lazily loaded list failed to load on first access.
+     *
+     * @param cause Exception thrown by the loader
+     */
+    public LazyLoadException(Throwable cause) {
+        super("Failed to load lazy list: " + cause.getMessage(), cause);
+    }
+}
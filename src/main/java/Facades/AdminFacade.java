@@ -2,13 +2,26 @@ package Facades;
 
 import Beans.Company;
 import Beans.Customer;
+import Beans.Page;
+import DB.DBManager;
+import DBDAO.CachedCouponDAO;
 import DBDAO.CompanyDBDAO;
 import DBDAO.CustomerDBDAO;
+import DBDAO.HotCouponInventory;
 import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
 import Exceptions.EntityType;
+import LoginManager.ClientType;
+import LoginManager.LoginManager;
+import Util.PageTokenUtil;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Class containing methods available for the "Administrator" user.
@@ -36,8 +49,32 @@ public class AdminFacade implements AdminFacadeDAO {
         CompanyDBDAO.getInstance().createCompany(company);
     }
 
+    /**
+     * Creates Company records in the database in JDBC batches. Can not create a Company with the same name or email as
+     * another Company, whether in the database or in the list itself. If any name or email is taken, no Company is created.
+     *
+     * @param companies Company instances to create the records by
+     * @throws EntityAlreadyExistException Thrown if a Company with the same name or email exists in the database or the list
+     * @throws EntityCrudException         Thrown if Create in MySQL was unsuccessful
+     */
+    @Override
+    public void addCompanies(List<Company> companies) throws EntityAlreadyExistException, EntityCrudException {
+        Set<String> names = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (Company company : companies) {
+            if (!names.add(company.getName()) || !emails.add(company.getEmail())) {
+                throw new EntityAlreadyExistException(EntityType.COMPANY);
+            }
+        }
+        if (CompanyDBDAO.getInstance().isAnyCompanyExist(companies)) {
+            throw new EntityAlreadyExistException(EntityType.COMPANY);
+        }
+        CompanyDBDAO.getInstance().createCompanies(companies);
+    }
+
     /**
      * Updates Company record in the database. Can not update Company ID number or Company name.
+     * Open sessions of the Company are closed, so the Company logs in again with the current credentials.
      *
      * @param company Company instance to update the record by
      * @throws EntityCrudException Thrown if Update in MySQL was unsuccessful
@@ -45,10 +82,12 @@ public class AdminFacade implements AdminFacadeDAO {
     @Override
     public void updateCompany(Company company) throws EntityCrudException {
         CompanyDBDAO.getInstance().updateCompany(company);
+        LoginManager.getInstance().invalidateByPrincipal(ClientType.COMPANY, company.getId());
     }
 
     /**
      * Deletes Company record from the database as well as all Coupons the company issued and their purchase history by Customers.
+     * Open sessions of the Company are closed.
      *
      * @param companyId Company ID number
      * @throws EntityCrudException Thrown if Delete in MySQL was unsuccessful
@@ -56,6 +95,8 @@ public class AdminFacade implements AdminFacadeDAO {
     @Override
     public void deleteCompany(Integer companyId) throws EntityCrudException {
         CompanyDBDAO.getInstance().deleteCompany(companyId);
+        CachedCouponDAO.getInstance().invalidateByCompanyId(companyId);
+        LoginManager.getInstance().invalidateByPrincipal(ClientType.COMPANY, companyId);
     }
 
     /**
@@ -72,6 +113,21 @@ public class AdminFacade implements AdminFacadeDAO {
         return CompanyDBDAO.getInstance().readCompany(companyId);
     }
 
+    /**
+     * Returns the details of many Companies by Company ID number, including:
+     * Company ID number, Name and Email.
+     * Does not return password or Coupons.
+     * Reads all of them in a few chunked queries instead of one query per Company.
+     *
+     * @param companyIds Company ID numbers
+     * @return Map of Company ID number to Company details, without ID numbers that match no Company
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Company> readCompanies(Collection<Integer> companyIds) throws EntityCrudException {
+        return CompanyDBDAO.getInstance().readCompanies(companyIds);
+    }
+
     /**
      * Returns the details of all Companies, including:
      * Company ID number, Name and Email.
@@ -85,6 +141,57 @@ public class AdminFacade implements AdminFacadeDAO {
         return (ArrayList<Company>) CompanyDBDAO.getInstance().readAllCompanies();
     }
 
+    /**
+     * Returns the details of all Companies with their Coupons, including:
+     * Company ID number, Name, Email and Coupons.
+     * Does not return password.
+     * Companies and Coupons are read together by one query, instead of one Coupon query per Company.
+     *
+     * @return List of all Companies details with their Coupons from MySQL database, in ascending ID number order
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public ArrayList<Company> readAllCompaniesWithCoupons() throws EntityCrudException {
+        return (ArrayList<Company>) CompanyDBDAO.getInstance().readAllCompaniesWithCoupons();
+    }
+
+    /**
+     * Returns one page of Companies details in ascending ID number order, including:
+     * Company ID number, Name and Email.
+     * Does not return password.
+     * Pages are read by seeking past the last ID number of the previous page, so deep pages are as fast as the first one.
+     *
+     * @param pageToken Token returned by the previous page, null for the first page
+     * @param pageSize  Maximum number of Companies on the page, between 1 and MAX_PAGE_SIZE
+     * @return Page of Companies details with the token of the following page
+     * @throws EntityCrudException Thrown if the token or page size is invalid, or Read from MySQL was unsuccessful
+     */
+    @Override
+    public Page<Company> readCompaniesPage(String pageToken, int pageSize) throws EntityCrudException {
+        int afterId = readPageStart("companies", pageToken, pageSize);
+        List<Company> companies = CompanyDBDAO.getInstance().readCompaniesAfterId(afterId, pageSize + 1);
+        if (companies.size() <= pageSize) {
+            return new Page<>(companies, null);
+        }
+        companies = companies.subList(0, pageSize);
+        return new Page<>(companies, PageTokenUtil.encode("companies", companies.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * Returns the details of all Companies as a lazy Stream, including:
+     * Company ID number, Name and Email.
+     * Does not return password.
+     * Rows are read from the database while the Stream is consumed, so memory use does not grow with the number of Companies.
+     * The Stream holds a database Connection and must be closed after use, preferably by try-with-resources.
+     *
+     * @return Stream of all Companies details from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Stream<Company> streamAllCompanies() throws EntityCrudException {
+        return CompanyDBDAO.getInstance().streamAllCompanies();
+    }
+
     /**
      * Creates Customer record in the database. Can not create a Customer with the same email as another Customer.
      *
@@ -100,8 +207,31 @@ public class AdminFacade implements AdminFacadeDAO {
         CustomerDBDAO.getInstance().createCustomer(customer);
     }
 
+    /**
+     * Creates Customer records in the database in JDBC batches. Can not create a Customer with the same email as another
+     * Customer, whether in the database or in the list itself. If any email is taken, no Customer is created.
+     *
+     * @param customers Customer instances to create the records by
+     * @throws EntityAlreadyExistException Thrown if a Customer with the same email exists in the database or the list
+     * @throws EntityCrudException         Thrown if Create in MySQL was unsuccessful
+     */
+    @Override
+    public void addCustomers(List<Customer> customers) throws EntityAlreadyExistException, EntityCrudException {
+        Set<String> emails = new HashSet<>();
+        for (Customer customer : customers) {
+            if (!emails.add(customer.getEmail())) {
+                throw new EntityAlreadyExistException(EntityType.CUSTOMER);
+            }
+        }
+        if (CustomerDBDAO.getInstance().isAnyCustomerExist(new ArrayList<>(emails))) {
+            throw new EntityAlreadyExistException(EntityType.CUSTOMER);
+        }
+        CustomerDBDAO.getInstance().createCustomers(customers);
+    }
+
     /**
      * Updates Customer record in the database. Can not update Customer ID number.
+     * Open sessions of the Customer are closed, so the Customer logs in again with the current credentials.
      *
      * @param customer Customer instance to update the record by
      * @throws EntityCrudException Thrown if Update in MySQL was unsuccessful
@@ -109,10 +239,12 @@ public class AdminFacade implements AdminFacadeDAO {
     @Override
     public void updateCustomer(Customer customer) throws EntityCrudException {
         CustomerDBDAO.getInstance().updateCustomer(customer);
+        LoginManager.getInstance().invalidateByPrincipal(ClientType.CUSTOMER, customer.getId());
     }
 
     /**
      * Deletes Customer record from the database as well as his Coupon purchase history.
+     * Open sessions of the Customer are closed.
      *
      * @param customerId Customer ID number
      * @throws EntityCrudException Thrown if Delete from MySQL was unsuccessful
@@ -120,6 +252,7 @@ public class AdminFacade implements AdminFacadeDAO {
     @Override
     public void deleteCustomer(Integer customerId) throws EntityCrudException {
         CustomerDBDAO.getInstance().deleteCustomer(customerId);
+        LoginManager.getInstance().invalidateByPrincipal(ClientType.CUSTOMER, customerId);
     }
 
     /**
@@ -136,6 +269,21 @@ public class AdminFacade implements AdminFacadeDAO {
         return CustomerDBDAO.getInstance().readCustomer(customerId);
     }
 
+    /**
+     * Returns the details of many Customers by Customer ID number, including:
+     * Customer ID number, First name, Last name and Email.
+     * Does not return password or Coupons.
+     * Reads all of them in a few chunked queries instead of one query per Customer.
+     *
+     * @param customerIds Customer ID numbers
+     * @return Map of Customer ID number to Customer details, without ID numbers that match no Customer
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Customer> readCustomers(Collection<Integer> customerIds) throws EntityCrudException {
+        return CustomerDBDAO.getInstance().readCustomers(customerIds);
+    }
+
     /**
      * Returns the details of all Customers, including:
      * Customer ID number, First name, Last name and Email.
@@ -148,4 +296,122 @@ public class AdminFacade implements AdminFacadeDAO {
     public ArrayList<Customer> readAllCustomers() throws EntityCrudException {
         return (ArrayList<Customer>) CustomerDBDAO.getInstance().readAllCustomers();
     }
+
+    /**
+     * Returns one page of Customers details in ascending ID number order, including:
+     * Customer ID number, First name, Last name and Email.
+     * Does not return password.
+     * Pages are read by seeking past the last ID number of the previous page, so deep pages are as fast as the first one.
+     *
+     * @param pageToken Token returned by the previous page, null for the first page
+     * @param pageSize  Maximum number of Customers on the page, between 1 and MAX_PAGE_SIZE
+     * @return Page of Customers details with the token of the following page
+     * @throws EntityCrudException Thrown if the token or page size is invalid, or Read from MySQL was unsuccessful
+     */
+    @Override
+    public Page<Customer> readCustomersPage(String pageToken, int pageSize) throws EntityCrudException {
+        int afterId = readPageStart("customers", pageToken, pageSize);
+        List<Customer> customers = CustomerDBDAO.getInstance().readCustomersAfterId(afterId, pageSize + 1);
+        if (customers.size() <= pageSize) {
+            return new Page<>(customers, null);
+        }
+        customers = customers.subList(0, pageSize);
+        return new Page<>(customers, PageTokenUtil.encode("customers", customers.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * Returns the details of all Customers with their purchased Coupons, including:
+     * Customer ID number, First name, Last name, Email and Coupons.
+     * Does not return password.
+     * Customers and Coupons are read together by one query, and a Coupon purchased by several Customers is a single
+     * shared instance.
+     *
+     * @return List of all Customers details with their Coupons from MySQL database, in ascending ID number order
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public ArrayList<Customer> readAllCustomersWithCoupons() throws EntityCrudException {
+        return (ArrayList<Customer>) CustomerDBDAO.getInstance().readAllCustomersWithCoupons();
+    }
+
+    /**
+     * Returns one page of Customers details with their purchased Coupons in ascending ID number order, including:
+     * Customer ID number, First name, Last name, Email and Coupons.
+     * Does not return password.
+     * Each page is read by one query. Tokens are interchangeable with those of readCustomersPage.
+     *
+     * @param pageToken Token returned by the previous page, null for the first page
+     * @param pageSize  Maximum number of Customers on the page, between 1 and MAX_PAGE_SIZE
+     * @return Page of Customers details with their Coupons and the token of the following page
+     * @throws EntityCrudException Thrown if the token or page size is invalid, or Read from MySQL was unsuccessful
+     */
+    @Override
+    public Page<Customer> readCustomersWithCouponsPage(String pageToken, int pageSize) throws EntityCrudException {
+        int afterId = readPageStart("customers", pageToken, pageSize);
+        List<Customer> customers = CustomerDBDAO.getInstance().readCustomersWithCouponsAfterId(afterId, pageSize + 1);
+        if (customers.size() <= pageSize) {
+            return new Page<>(customers, null);
+        }
+        customers = customers.subList(0, pageSize);
+        return new Page<>(customers, PageTokenUtil.encode("customers", customers.get(pageSize - 1).getId()));
+    }
+
+    /**
+     * Returns the details of all Customers as a lazy Stream, including:
+     * Customer ID number, First name, Last name and Email.
+     * Does not return password.
+     * Rows are read from the database while the Stream is consumed, so memory use does not grow with the number of Customers.
+     * The Stream holds a database Connection and must be closed after use, preferably by try-with-resources.
+     *
+     * @return Stream of all Customers details from MySQL database
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Stream<Customer> streamAllCustomers() throws EntityCrudException {
+        return CustomerDBDAO.getInstance().streamAllCustomers();
+    }
+
+    /**
+     * Starts a flash sale for a Coupon: its remaining amount is held in memory, sold-out purchase attempts are rejected
+     * without a database round trip, and the amount in the database is brought up to date in the background.
+     * Should be called before the sale opens.
+     *
+     * @param couponId Coupon ID number
+     * @throws EntityCrudException Thrown if the Coupon does not exist or Create in MySQL was unsuccessful
+     */
+    @Override
+    public void designateHotCoupon(Integer couponId) throws EntityCrudException {
+        HotCouponInventory.getInstance().designate(couponId);
+    }
+
+    /**
+     * Ends the flash sale of a Coupon, writing its final amount to the database. Later purchases take the regular path.
+     *
+     * @param couponId Coupon ID number
+     * @throws EntityCrudException Thrown if Update or Delete in MySQL was unsuccessful
+     */
+    @Override
+    public void releaseHotCoupon(Integer couponId) throws EntityCrudException {
+        HotCouponInventory.getInstance().release(couponId);
+    }
+
+    /**
+     * Validates a page request and decodes its token into the ID number the page starts after.
+     *
+     * @param listing   Name of the paginated listing
+     * @param pageToken Token returned by the previous page, null for the first page
+     * @param pageSize  Requested page size
+     * @return ID number to read after, 0 for the first page
+     * @throws EntityCrudException Thrown if the token or page size is invalid
+     */
+    private int readPageStart(String listing, String pageToken, int pageSize) throws EntityCrudException {
+        if (pageSize < 1 || pageSize > DBManager.MAX_PAGE_SIZE) {
+            throw new EntityCrudException("Page size must be between 1 and " + DBManager.MAX_PAGE_SIZE);
+        }
+        try {
+            return PageTokenUtil.decode(listing, pageToken);
+        } catch (IllegalArgumentException e) {
+            throw new EntityCrudException("Invalid page token: " + e.getMessage());
+        }
+    }
 }
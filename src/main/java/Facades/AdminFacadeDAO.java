@@ -2,21 +2,40 @@ package Facades;
 
 import Beans.Company;
 import Beans.Customer;
+import Beans.Page;
 import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface AdminFacadeDAO {
     void addCompany(Company company) throws EntityAlreadyExistException, EntityCrudException;
+    void addCompanies(List<Company> companies) throws EntityAlreadyExistException, EntityCrudException;
     void updateCompany(Company company) throws EntityCrudException;
     void deleteCompany(Integer companyId) throws EntityCrudException;
     Company readCompany(Integer companyId) throws EntityCrudException;
+    Map<Integer, Company> readCompanies(Collection<Integer> companyIds) throws EntityCrudException;
     ArrayList<Company> readAllCompanies() throws EntityCrudException;
+    ArrayList<Company> readAllCompaniesWithCoupons() throws EntityCrudException;
+    Page<Company> readCompaniesPage(String pageToken, int pageSize) throws EntityCrudException;
+    Stream<Company> streamAllCompanies() throws EntityCrudException;
 
     void addCustomer(Customer customer) throws EntityAlreadyExistException, EntityCrudException;
+    void addCustomers(List<Customer> customers) throws EntityAlreadyExistException, EntityCrudException;
     void updateCustomer(Customer customer) throws EntityCrudException;
     void deleteCustomer(Integer customerId) throws EntityCrudException;
     Customer readCustomer(Integer customerId) throws EntityCrudException;
+    Map<Integer, Customer> readCustomers(Collection<Integer> customerIds) throws EntityCrudException;
     ArrayList<Customer> readAllCustomers() throws EntityCrudException;
+    Page<Customer> readCustomersPage(String pageToken, int pageSize) throws EntityCrudException;
+    ArrayList<Customer> readAllCustomersWithCoupons() throws EntityCrudException;
+    Page<Customer> readCustomersWithCouponsPage(String pageToken, int pageSize) throws EntityCrudException;
+    Stream<Customer> streamAllCustomers() throws EntityCrudException;
+
+    void designateHotCoupon(Integer couponId) throws EntityCrudException;
+    void releaseHotCoupon(Integer couponId) throws EntityCrudException;
 }
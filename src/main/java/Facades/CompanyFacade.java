@@ -4,12 +4,15 @@ import Beans.Category;
 import Beans.Company;
 import Beans.Coupon;
 import DBDAO.CompanyDBDAO;
-import DBDAO.CouponDBDAO;
+import DBDAO.CachedCouponDAO;
 import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
 import Exceptions.EntityType;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Class containing methods available for the "Company" user.
@@ -35,10 +38,32 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public void addCoupon(Coupon coupon) throws EntityAlreadyExistException, EntityCrudException {
-        if (CouponDBDAO.getInstance().isCouponExistByCompanyId(this.companyId, coupon.getTitle())) {
+        if (CachedCouponDAO.getInstance().isCouponExistByCompanyId(this.companyId, coupon.getTitle())) {
             throw new EntityAlreadyExistException(EntityType.COUPON);
         }
-        CouponDBDAO.getInstance().createCoupon(coupon);
+        CachedCouponDAO.getInstance().createCoupon(coupon);
+    }
+
+    /**
+     * Creates Coupon records in the database in JDBC batches. Can not create a Coupon with the same title as another
+     * Coupon of the same Company, whether in the database or in the list itself. If any title is taken, no Coupon is created.
+     *
+     * @param coupons Coupon instances to create the records by
+     * @throws EntityAlreadyExistException Thrown if a Coupon with the same title by the same company exists in the database or the list
+     * @throws EntityCrudException         Thrown if Create in MySQL was unsuccessful
+     */
+    @Override
+    public void addCoupons(List<Coupon> coupons) throws EntityAlreadyExistException, EntityCrudException {
+        Set<String> titles = new HashSet<>();
+        for (Coupon coupon : coupons) {
+            if (!titles.add(coupon.getTitle())) {
+                throw new EntityAlreadyExistException(EntityType.COUPON);
+            }
+        }
+        if (CachedCouponDAO.getInstance().isAnyCouponExistByCompanyId(this.companyId, new ArrayList<>(titles))) {
+            throw new EntityAlreadyExistException(EntityType.COUPON);
+        }
+        CachedCouponDAO.getInstance().createCoupons(coupons);
     }
 
     /**
@@ -49,7 +74,7 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public void updateCoupon(Coupon coupon) throws EntityCrudException {
-        CouponDBDAO.getInstance().updateCoupon(coupon);
+        CachedCouponDAO.getInstance().updateCoupon(coupon);
     }
 
     /**
@@ -60,7 +85,7 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public void deleteCoupon(int couponId) throws EntityCrudException {
-        CouponDBDAO.getInstance().deleteCoupon(couponId);
+        CachedCouponDAO.getInstance().deleteCoupon(couponId);
     }
 
     /**
@@ -72,7 +97,7 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public Coupon readCouponById(int couponId) throws EntityCrudException {
-        return CouponDBDAO.getInstance().readCoupon(couponId);
+        return CachedCouponDAO.getInstance().readCoupon(couponId);
     }
 
     /**
@@ -83,7 +108,7 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public ArrayList<Coupon> readAllCompanyCoupons() throws EntityCrudException {
-        return (ArrayList<Coupon>) CouponDBDAO.getInstance().readCouponsByCompanyId(this.companyId);
+        return (ArrayList<Coupon>) CachedCouponDAO.getInstance().readCouponsByCompanyId(this.companyId);
     }
 
     /**
@@ -95,7 +120,7 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public ArrayList<Coupon> readCompanyCoupons(Category category) throws EntityCrudException {
-        return (ArrayList<Coupon>) CouponDBDAO.getInstance().readCouponsByCompanyIdAndCategory(this.companyId, String.valueOf(category));
+        return (ArrayList<Coupon>) CachedCouponDAO.getInstance().readCouponsByCompanyIdAndCategory(this.companyId, String.valueOf(category));
     }
 
     /**
@@ -107,7 +132,7 @@ public class CompanyFacade implements CompanyFacadeDAO {
      */
     @Override
     public ArrayList<Coupon> readCompanyCoupons(double maxPrice) throws EntityCrudException {
-        return (ArrayList<Coupon>) CouponDBDAO.getInstance().readCouponsByCompanyIdAndMaxPrice(this.companyId, maxPrice);
+        return (ArrayList<Coupon>) CachedCouponDAO.getInstance().readCouponsByCompanyIdAndMaxPrice(this.companyId, maxPrice);
     }
 
     /**
@@ -7,9 +7,11 @@ import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public interface CompanyFacadeDAO {
     void addCoupon(Coupon coupon) throws EntityAlreadyExistException, EntityCrudException;
+    void addCoupons(List<Coupon> coupons) throws EntityAlreadyExistException, EntityCrudException;
     void updateCoupon(Coupon coupon) throws EntityCrudException;
     void deleteCoupon(int couponId) throws EntityCrudException;
     Coupon readCouponById(int couponId) throws EntityCrudException;
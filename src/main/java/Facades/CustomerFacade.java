@@ -3,13 +3,13 @@ package Facades;
 import Beans.Category;
 import Beans.Coupon;
 import Beans.Customer;
-import DBDAO.CouponDBDAO;
+import DBDAO.CachedCouponDAO;
 import DBDAO.CustomerDBDAO;
 import Exceptions.*;
 
-import java.sql.Date;
-import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * Class containing methods available for the "Customer" user.
@@ -32,30 +32,26 @@ public class CustomerFacade implements CustomerFacadeDAO {
      * Checks that there are coupons available for purchase (coupon amount is not 0).
      * Checks that the coupon isn't expired.
      * Lowers the amount of coupons by 1 after purchase is complete.
+     * All checks run against the database inside the purchase transaction, not against the given Coupon instance.
      *
      * @param coupon Coupon being purchased
-     * @throws EntityCrudException         Thrown if Count in MySQL was unsuccessful
+     * @throws EntityCrudException         Thrown if the purchase transaction in MySQL was unsuccessful
      * @throws EntityAlreadyExistException Thrown if the customer already purchased this coupon
      * @throws NoCouponsLeftException      Thrown if there are no coupons left to purchase
      * @throws CouponExpiredException      Thrown if the coupon being attempted to purchase is expired
      */
     @Override
     public void purchaseCoupon(Coupon coupon) throws EntityCrudException, EntityAlreadyExistException, NoCouponsLeftException, CouponExpiredException {
-        int newCouponAmount;
-        if (CouponDBDAO.getInstance().isPurchaseExistByIds(coupon.getId(), customerId)) {
-            throw new EntityAlreadyExistException(EntityType.PURCHASE);
+        switch (CachedCouponDAO.getInstance().purchaseCoupon(customerId, coupon.getId())) {
+            case ALREADY_PURCHASED:
+                throw new EntityAlreadyExistException(EntityType.PURCHASE);
+            case SOLD_OUT:
+                throw new NoCouponsLeftException();
+            case EXPIRED:
+                throw new CouponExpiredException();
+            default:
+                coupon.setAmount(coupon.getAmount() - 1);
         }
-        if (coupon.getAmount() <= 0) {
-            throw new NoCouponsLeftException();
-        }
-        if (coupon.getEndDate().before(Date.valueOf(LocalDate.now()))) {
-            throw new CouponExpiredException();
-        }
-        CouponDBDAO.getInstance().addCouponPurchase(customerId, coupon.getId());
-        newCouponAmount = coupon.getAmount() - 1;
-        coupon.setAmount(newCouponAmount);
-        CouponDBDAO.getInstance().updateCoupon(coupon);
-        System.out.println("Coupon Amount -1");
     }
 
     /**
@@ -67,7 +63,31 @@ public class CustomerFacade implements CustomerFacadeDAO {
      */
     @Override
     public Coupon readCouponById(int couponId) throws EntityCrudException {
-        return CouponDBDAO.getInstance().readCoupon(couponId);
+        return CachedCouponDAO.getInstance().readCoupon(couponId);
+    }
+
+    /**
+     * Returns many Coupons by Coupon ID number. Cached Coupons are taken from memory and the rest are read together.
+     *
+     * @param couponIds Coupon ID numbers
+     * @return Map of Coupon ID number to Coupon, without ID numbers that match no Coupon
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public Map<Integer, Coupon> readCouponsByIds(Collection<Integer> couponIds) throws EntityCrudException {
+        return CachedCouponDAO.getInstance().readCoupons(couponIds);
+    }
+
+    /**
+     * Checks whether the logged customer owns a Coupon. Answered from memory once the customer's purchases are loaded.
+     *
+     * @param couponId Coupon ID number
+     * @return true -> the customer purchased the coupon, false -> the customer did not purchase the coupon
+     * @throws EntityCrudException Thrown if Read from MySQL was unsuccessful
+     */
+    @Override
+    public boolean isCouponPurchased(int couponId) throws EntityCrudException {
+        return CachedCouponDAO.getInstance().isPurchaseExistByIds(couponId, this.customerId);
     }
 
     /**
@@ -78,7 +98,7 @@ public class CustomerFacade implements CustomerFacadeDAO {
      */
     @Override
     public ArrayList<Coupon> readAllCustomerCoupons() throws EntityCrudException {
-        return (ArrayList<Coupon>) CouponDBDAO.getInstance().readCouponsByCustomerId(this.customerId);
+        return (ArrayList<Coupon>) CachedCouponDAO.getInstance().readCouponsByCustomerId(this.customerId);
     }
 
     /**
@@ -90,7 +110,7 @@ public class CustomerFacade implements CustomerFacadeDAO {
      */
     @Override
     public ArrayList<Coupon> readCustomerCoupons(Category category) throws EntityCrudException {
-        return (ArrayList<Coupon>) CouponDBDAO.getInstance().readCouponsByCustomerIdAndCategory(this.customerId, String.valueOf(category));
+        return (ArrayList<Coupon>) CachedCouponDAO.getInstance().readCouponsByCustomerIdAndCategory(this.customerId, String.valueOf(category));
     }
 
     /**
@@ -102,7 +122,7 @@ public class CustomerFacade implements CustomerFacadeDAO {
      */
     @Override
     public ArrayList<Coupon> readCustomerCoupons(double maxPrice) throws EntityCrudException {
-        return (ArrayList<Coupon>) CouponDBDAO.getInstance().readCouponsByCustomerIdAndMaxPrice(this.customerId, maxPrice);
+        return (ArrayList<Coupon>) CachedCouponDAO.getInstance().readCouponsByCustomerIdAndMaxPrice(this.customerId, maxPrice);
     }
 
     /**
@@ -9,10 +9,14 @@ import Exceptions.EntityCrudException;
 import Exceptions.NoCouponsLeftException;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
 
 public interface CustomerFacadeDAO {
     void purchaseCoupon(Coupon coupon) throws EntityCrudException, EntityAlreadyExistException, NoCouponsLeftException, CouponExpiredException;
     Coupon readCouponById(int couponId) throws EntityCrudException;
+    Map<Integer, Coupon> readCouponsByIds(Collection<Integer> couponIds) throws EntityCrudException;
+    boolean isCouponPurchased(int couponId) throws EntityCrudException;
     ArrayList<Coupon> readAllCustomerCoupons() throws EntityCrudException;
     ArrayList<Coupon> readCustomerCoupons(Category category) throws EntityCrudException;
     ArrayList<Coupon> readCustomerCoupons(double maxPrice) throws EntityCrudException;
@@ -1,21 +1,27 @@
 package LoginManager;
 
+import DB.Binding;
 import DB.DBManager;
 import DB.DBTools;
 import Facades.AdminFacade;
 import Facades.CompanyFacade;
 import Facades.CustomerFacade;
+import Util.BoundedCache;
 
-import java.sql.ResultSet;
+import java.security.SecureRandom;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Base64;
 
 /**
  * Class containing login method allowing registered users access to facades.
+ * Also keeps open sessions, so a client logs in once and resumes its facade by session token on following requests.
  */
 public class LoginManager {
     private static LoginManager instance = null;
+    private static final int TOKEN_BYTES = 24;
+    private final SecureRandom random = new SecureRandom();
+    private final BoundedCache<String, Session> sessions =
+            new BoundedCache<>(DBManager.MAX_SESSIONS, DBManager.SESSION_IDLE_TTL_MILLIS);
 
     /**
      * Private constructor for creating LoginManager instance.
@@ -49,36 +55,104 @@ public class LoginManager {
      * a Customer or null if there is no match with input
      */
     public Object login(String email, String password, ClientType clientType) {
+        Session session = authenticate(email, password, clientType);
+        return session == null ? null : session.getFacade();
+    }
+
+    /**
+     * Method for logging in and opening a session. Checks the database for a match between client input and an existing
+     * record once, then stores the facade under a new session token until the session is idle for
+     * SESSION_IDLE_TTL_MILLIS or evicted because MAX_SESSIONS sessions are open.
+     *
+     * @param email      Client email
+     * @param password   Client password
+     * @param clientType Client type is either ADMINISTRATOR, COMPANY or CUSTOMER
+     * @return Session holding the token and the facade of the client, or null if there is no match with input
+     */
+    public Session openSession(String email, String password, ClientType clientType) {
+        Session session = authenticate(email, password, clientType);
+        if (session != null) {
+            sessions.put(session.getToken(), session);
+        }
+        return session;
+    }
+
+    /**
+     * Method for resuming an open session without checking credentials again. Renews the idle time of the session.
+     *
+     * @param token Session token received from openSession
+     * @return Facade of the session's client, or null if the token is unknown, expired or evicted
+     */
+    public Object resume(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        return session == null ? null : session.getFacade();
+    }
+
+    /**
+     * Method for closing an open session.
+     *
+     * @param token Session token received from openSession
+     */
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Method for closing every open session of a client, e.g. once the client is deleted or its credentials change.
+     *
+     * @param clientType  Client type of the sessions to close
+     * @param principalId ID number of the Company or Customer
+     */
+    public void invalidateByPrincipal(ClientType clientType, int principalId) {
+        sessions.removeIf(session -> session.getClientType() == clientType && session.getPrincipalId() == principalId);
+    }
+
+    /**
+     * Returns the number of open sessions, including expired sessions not dropped yet.
+     *
+     * @return Number of open sessions
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Checks the database for a match between client input and an existing record and builds a Session for the client.
+     *
+     * @param email      Client email
+     * @param password   Client password
+     * @param clientType Client type is either ADMINISTRATOR, COMPANY or CUSTOMER
+     * @return Session of the client with a new token, or null if there is no match with input
+     */
+    private Session authenticate(String email, String password, ClientType clientType) {
         switch (clientType) {
             case ADMINISTRATOR:
                 if (email.equals("admin@admin.com") && password.equals("admin")) {
-                    return new AdminFacade();
+                    return new Session(newToken(), clientType, 0, new AdminFacade());
                 }
                 break;
             case COMPANY:
-                ResultSet companyResult;
-                Map<Integer, Object> companyParams = new HashMap<>();
-                companyParams.put(1, email);
-                companyParams.put(2, password);
+                Binding companyParams = binder -> binder.bindString(email).bindString(password);
                 try {
-                    companyResult = DBTools.runQueryForResult(DBManager.COMPANY_LOGGING, companyParams);
-                    assert companyResult != null;
-                    companyResult.next();
-                    return new CompanyFacade(companyResult.getInt(1));
+                    Integer companyId = DBTools.runQueryForObject(DBManager.COMPANY_LOGGING, companyParams, result -> result.getInt(1));
+                    if (companyId != null) {
+                        return new Session(newToken(), clientType, companyId, new CompanyFacade(companyId));
+                    }
+                    break;
                 } catch (SQLException e) {
                     System.out.println("Error! Login failed!");
                     break;
                 }
             case CUSTOMER:
-                ResultSet customerResult;
-                Map<Integer, Object> customerParams = new HashMap<>();
-                customerParams.put(1, email);
-                customerParams.put(2, password);
+                Binding customerParams = binder -> binder.bindString(email).bindString(password);
                 try {
-                    customerResult = DBTools.runQueryForResult(DBManager.CUSTOMER_LOGGING, customerParams);
-                    assert customerResult != null;
-                    customerResult.next();
-                    return new CustomerFacade(customerResult.getInt(1));
+                    Integer customerId = DBTools.runQueryForObject(DBManager.CUSTOMER_LOGGING, customerParams, result -> result.getInt(1));
+                    if (customerId != null) {
+                        return new Session(newToken(), clientType, customerId, new CustomerFacade(customerId));
+                    }
+                    break;
                 } catch (SQLException e) {
                     System.out.println("Error! Login failed!");
                     break;
@@ -87,9 +161,15 @@ public class LoginManager {
         System.out.println("Login failed! No match found with input!");
         return null;
     }
-}
-
-
-
-
 
+    /**
+     * Generates a new random session token.
+     *
+     * @return URL-safe session token
+     */
+    private String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,63 @@
+package LoginManager;
+
+/**
+ * Logged-in client session issued by LoginManager. Holds the session token together with the facade and the ID number
+ * of the logged client, so requests resuming the session skip the credential check and reuse the same facade.
+ */
+public final class Session {
+    private final String token;
+    private final ClientType clientType;
+    private final int principalId;
+    private final Object facade;
+
+    /**
+     * Constructs a Session.
+     *
+     * @param token       Session token
+     * @param clientType  Type of the logged client
+     * @param principalId ID number of the logged Company or Customer, or 0 for the administrator
+     * @param facade      Facade of the logged client
+     */
+    Session(String token, ClientType clientType, int principalId, Object facade) {
+        this.token = token;
+        this.clientType = clientType;
+        this.principalId = principalId;
+        this.facade = facade;
+    }
+
+    /**
+     * Returns the session token, to be presented to LoginManager.resume on following requests.
+     *
+     * @return Session token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the type of the logged client.
+     *
+     * @return Client type
+     */
+    public ClientType getClientType() {
+        return clientType;
+    }
+
+    /**
+     * Returns the ID number of the logged client.
+     *
+     * @return ID number of the logged Company or Customer, or 0 for the administrator
+     */
+    public int getPrincipalId() {
+        return principalId;
+    }
+
+    /**
+     * Returns the facade of the logged client.
+     *
+     * @return AdminFacade, CompanyFacade or CustomerFacade, matching the client type
+     */
+    public Object getFacade() {
+        return facade;
+    }
+}
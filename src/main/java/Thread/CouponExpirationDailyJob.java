@@ -1,53 +1,116 @@
 package Thread;
 
-import Util.DateUtil;
-import DBDAO.CouponDBDAO;
+import DB.DBManager;
+import DBDAO.CachedCouponDAO;
 import Exceptions.EntityCrudException;
 
-import java.util.Calendar;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class containing daily-job thread for deleting expired coupons from the database.
+ * Once per EXPIRATION_JOB_PERIOD_MILLIS, starting at the next 00:00:00, expired Coupons are purged in chunks of
+ * EXPIRATION_PURGE_CHUNK_SIZE, each deleted in its own short transaction, pausing EXPIRATION_PURGE_PAUSE_MILLIS between
+ * chunks so other queries are not starved. Every purge reports the rows purged, the chunks and its duration.
  */
 public class CouponExpirationDailyJob {
-    private CouponDBDAO couponDBDAO;
-    private static boolean isRunning;
-    private final long dayInMilliseconds = 86_400 * 1000;
-
+    private final CachedCouponDAO couponDAO;
+    private final ScheduledExecutorService scheduler;
+    private volatile int lastPurgedCount;
+    private volatile int lastChunkCount;
+    private volatile long lastDurationMillis;
 
     /**
-     * Constructor containing daily-job thread. deletes expired-coupons every day at 00:00:00 am.
+     * Constructor containing daily-job thread. Deletes expired coupons every day at 00:00:00 am.
+     * The first purge runs at the next 00:00:00, not when the job is constructed, so Coupons that already expired stay
+     * in the database until then.
      */
     public CouponExpirationDailyJob() {
-        Timer timer = new Timer();
-        couponDBDAO = CouponDBDAO.getInstance();
-        isRunning = true;
-        TimerTask couponCleanUp = new TimerTask() {
-            @Override
-            public void run() {
-                while (isRunning) {
-                    try {
-                        couponDBDAO.deleteExpiredCoupons(DateUtil.getCurrentDate());
-                        System.out.println("All expired coupons have been deleted !");
-                    } catch (EntityCrudException e) {
-                        System.out.println("Failed to delete expired coupons !");
-                    }
+        couponDAO = CachedCouponDAO.getInstance();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "coupon-expiration-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long untilMidnight = Duration.between(LocalDateTime.now(), LocalDate.now().plusDays(1).atStartOfDay()).toMillis();
+        scheduler.scheduleAtFixedRate(this::purgeExpiredCoupons, untilMidnight,
+                DBManager.EXPIRATION_JOB_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deletes every Coupon that expired before today, one chunk at a time, and reports the result.
+     * Stops early if deleting a chunk fails or the thread is interrupted; chunks deleted until then stay deleted.
+     *
+     * @return Number of Coupons deleted
+     */
+    public int purgeExpiredCoupons() {
+        Date today = Date.valueOf(LocalDate.now());
+        long start = System.nanoTime();
+        int purged = 0;
+        int chunks = 0;
+        try {
+            while (true) {
+                List<Integer> couponIds = couponDAO.deleteExpiredCoupons(today, DBManager.EXPIRATION_PURGE_CHUNK_SIZE);
+                if (couponIds.isEmpty()) {
+                    break;
                 }
+                purged += couponIds.size();
+                chunks++;
+                if (couponIds.size() < DBManager.EXPIRATION_PURGE_CHUNK_SIZE) {
+                    break;
+                }
+                Thread.sleep(DBManager.EXPIRATION_PURGE_PAUSE_MILLIS);
             }
-        };
-        Calendar today = Calendar.getInstance();
-        today.set(Calendar.HOUR_OF_DAY, 0);
-        today.set(Calendar.MINUTE, 0);
-        today.set(Calendar.SECOND, 0);
-        timer.schedule(couponCleanUp, today.getTime(), dayInMilliseconds);
+        } catch (EntityCrudException e) {
+            System.out.println("Failed to delete expired coupons !");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lastPurgedCount = purged;
+        lastChunkCount = chunks;
+        lastDurationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("Purged " + purged + " expired coupons in " + chunks + " chunks, " + lastDurationMillis + " ms");
+        return purged;
+    }
+
+    /**
+     * Returns the number of Coupons deleted by the last purge.
+     *
+     * @return Rows purged
+     */
+    public int getLastPurgedCount() {
+        return lastPurgedCount;
+    }
+
+    /**
+     * Returns the number of chunks deleted by the last purge.
+     *
+     * @return Chunks deleted
+     */
+    public int getLastChunkCount() {
+        return lastChunkCount;
+    }
+
+    /**
+     * Returns how long the last purge took.
+     *
+     * @return Duration in milliseconds
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
     }
 
     /**
-     * Static method for stopping daily-job thread.
+     * Stops daily-job thread of this job. A purge in progress is interrupted between chunks.
+     * Each job owns its thread, so every constructed job must be stopped through its own instance.
      */
-    public static void stopTask() {
-        isRunning = false;
+    public void stopTask() {
+        scheduler.shutdownNow();
     }
 }
@@ -0,0 +1,121 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe Bloom filter of Strings. Answers "definitely not added" or "possibly added", with a false-positive rate
+ * close to the configured one as long as no more than the expected number of Strings were added.
+ * Strings can not be removed. Bit positions are derived from one 64-bit hash by double hashing.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * Constructs an empty BloomFilter sized for an expected number of Strings and a false-positive rate.
+     *
+     * @param expectedInsertions Expected number of Strings to add, at least 1
+     * @param falsePositiveRate  Wanted false-positive rate, between 0 and 1 exclusive
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.max(1, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * Adds a String to the filter.
+     *
+     * @param value String to add
+     */
+    public void put(String value) {
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    break;
+                }
+            }
+        }
+        insertions.increment();
+    }
+
+    /**
+     * Checks whether a String may have been added to the filter.
+     *
+     * @param value String to look up
+     * @return true -> possibly added, false -> definitely not added
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether more Strings were added than the filter was sized for, so its false-positive rate is degrading.
+     *
+     * @return true -> filter is over capacity, false -> filter is within capacity
+     */
+    public boolean isOverCapacity() {
+        return insertions.sum() > expectedInsertions;
+    }
+
+    /**
+     * Returns the size of the bit array.
+     *
+     * @return Number of bits
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * Returns the number of bit positions checked per String.
+     *
+     * @return Number of hash functions
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * Hashes a String to 64 bits: FNV-1a over its chars, followed by a MurmurHash3 finalizer.
+     *
+     * @param value String to hash
+     * @return 64-bit hash
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,213 @@
+package Util;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent key-value cache with a max size and an optional time-to-live, counted either since the last read (idle TTL)
+ * or since the entry was cached. Expired entries are dropped when next read or when the cache is full.
+ * When the cache is full and no entry expired, the least recently read entries are evicted in one sweep, down to
+ * nine tenths of the max size, so the sweep cost is spread over the following inserts.
+ * Concurrent inserts may briefly exceed the max size by the number of inserting threads.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class BoundedCache<K, V> {
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Object evictionLock = new Object();
+    private final int maxSize;
+    private final long ttlNanos;
+    private final boolean renewOnRead;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Constructs an empty BoundedCache whose entries expire when not read within the idle TTL.
+     *
+     * @param maxSize       Max number of entries, at least 1
+     * @param idleTtlMillis Time in milliseconds an entry stays cached without being read, or 0 for no expiry
+     */
+    public BoundedCache(int maxSize, long idleTtlMillis) {
+        this(maxSize, idleTtlMillis, true);
+    }
+
+    /**
+     * Constructs an empty BoundedCache.
+     *
+     * @param maxSize     Max number of entries, at least 1
+     * @param ttlMillis   Time to live of an entry in milliseconds, or 0 for no expiry
+     * @param renewOnRead true -> the TTL restarts on every read, false -> the TTL counts from when the entry was cached
+     */
+    public BoundedCache(int maxSize, long ttlMillis, boolean renewOnRead) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.renewOnRead = renewOnRead;
+    }
+
+    /**
+     * Returns the cached value of a key and renews its idle TTL.
+     *
+     * @param key Key to look up
+     * @return Cached value, or null if the key is not cached or expired
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        long now = System.nanoTime();
+        if (isExpired(entry, now)) {
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        entry.lastAccess = now;
+        hits.increment();
+        return entry.value;
+    }
+
+    /**
+     * Caches a value under a key, replacing any previous value. Evicts entries first if the cache is full.
+     *
+     * @param key   Key to cache the value under
+     * @param value Value to cache
+     */
+    public void put(K key, V value) {
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Removes a key from the cache.
+     *
+     * @param key Key to remove
+     * @return Removed value, or null if the key was not cached
+     */
+    public V remove(K key) {
+        Entry<V> entry = entries.remove(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Removes every entry whose value matches a condition.
+     *
+     * @param condition Condition selecting the values to remove
+     */
+    public void removeIf(Predicate<V> condition) {
+        entries.values().removeIf(entry -> condition.test(entry.value));
+    }
+
+    /**
+     * Runs an action on every cached value, including expired values not dropped yet. Does not count as a read.
+     *
+     * @param action Action to run
+     */
+    public void forEachValue(Consumer<V> action) {
+        entries.values().forEach(entry -> action.accept(entry.value));
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of cached entries, including expired entries not dropped yet.
+     *
+     * @return Number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops expired entries, then the least recently read entries until the cache is down to nine tenths of its max size.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            if (entries.size() < maxSize) {
+                return;
+            }
+            long now = System.nanoTime();
+            int sizeBefore = entries.size();
+            entries.values().removeIf(entry -> isExpired(entry, now));
+            int excess = entries.size() - (maxSize - Math.max(1, maxSize / 10));
+            if (excess > 0) {
+                entries.entrySet().stream()
+                        .map(entry -> new AbstractMap.SimpleImmutableEntry<>(entry, entry.getValue().lastAccess))
+                        .sorted(Map.Entry.comparingByValue())
+                        .limit(excess)
+                        .forEach(snapshot -> entries.remove(snapshot.getKey().getKey(), snapshot.getKey().getValue()));
+            }
+            evictions.add(Math.max(0, sizeBefore - entries.size()));
+        }
+    }
+
+    /**
+     * Returns the number of reads served from the cache.
+     *
+     * @return Hit count
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of reads that found no valid entry.
+     *
+     * @return Miss count
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries dropped because they expired or the cache was full.
+     * Entries removed through remove, removeIf or clear are not counted.
+     *
+     * @return Eviction count
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Checks whether an entry outlived its TTL.
+     *
+     * @param entry Entry to check
+     * @param now   Current System.nanoTime()
+     * @return true -> entry expired, false -> entry is still valid
+     */
+    private boolean isExpired(Entry<V> entry, long now) {
+        return ttlNanos > 0 && now - (renewOnRead ? entry.lastAccess : entry.cachedAt) > ttlNanos;
+    }
+
+    /**
+     * Cached value together with the times it was cached and last read.
+     */
+    private static class Entry<V> {
+        private final V value;
+        private final long cachedAt;
+        private volatile long lastAccess;
+
+        private Entry(V value, long cachedAt) {
+            this.value = value;
+            this.cachedAt = cachedAt;
+            this.lastAccess = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package Util;
+
+import java.util.Arrays;
+
+/**
+ * Set of int values stored in a single open-addressing int array with linear probing, avoiding the boxed Integer keys
+ * and per-entry nodes of HashSet. Holds any int except Integer.MIN_VALUE, which marks free slots.
+ * Removal uses backward-shift deletion, so no tombstones accumulate. Not thread-safe.
+ */
+public class IntHashSet {
+    private static final int FREE = Integer.MIN_VALUE;
+    private static final int MIN_CAPACITY = 4;
+    private int[] slots;
+    private int size;
+
+    /**
+     * Constructs an empty IntHashSet.
+     */
+    public IntHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty IntHashSet sized for an expected number of values.
+     *
+     * @param expectedSize Expected number of values
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        slots = newSlots(capacity);
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value Value to add, not Integer.MIN_VALUE
+     * @return true -> value was added, false -> value was already in the set
+     */
+    public boolean add(int value) {
+        if (value == FREE) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE can not be stored");
+        }
+        if ((size + 1) * 4 > slots.length * 3) {
+            resize(slots.length << 1);
+        }
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != FREE) {
+            if (slots[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value Value to look up
+     * @return true -> value is in the set, false -> value is not in the set
+     */
+    public boolean contains(int value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != FREE) {
+            if (slots[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes a value from the set, shifting back the values probed past it.
+     *
+     * @param value Value to remove
+     * @return true -> value was removed, false -> value was not in the set
+     */
+    public boolean remove(int value) {
+        int mask = slots.length - 1;
+        int slot = hash(value) & mask;
+        while (slots[slot] != value) {
+            if (slots[slot] == FREE) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (slots[next] != FREE) {
+            int home = hash(slots[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slots[gap] = FREE;
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the number of values in the set.
+     *
+     * @return Number of values
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the approximate heap footprint of the set: object headers, fields and the slot array.
+     *
+     * @return Approximate size in bytes
+     */
+    public long memoryBytes() {
+        return 24 + 16 + 4L * slots.length;
+    }
+
+    /**
+     * Rehashes every value into a slot array of a new capacity.
+     *
+     * @param capacity New capacity, a power of two
+     */
+    private void resize(int capacity) {
+        int[] old = slots;
+        slots = newSlots(capacity);
+        int mask = capacity - 1;
+        for (int value : old) {
+            if (value != FREE) {
+                int slot = hash(value) & mask;
+                while (slots[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * Allocates a slot array with every slot free.
+     *
+     * @param capacity Capacity, a power of two
+     * @return New slot array
+     */
+    private static int[] newSlots(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, FREE);
+        return slots;
+    }
+
+    /**
+     * Spreads the bits of a value, so sequential IDs do not cluster in neighbouring slots.
+     *
+     * @param value Value to hash
+     * @return Hash of the value
+     */
+    private static int hash(int value) {
+        int hash = value * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,75 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records when each key was last invalidated, so a value loaded for a key can be checked against invalidations that
+ * happened while it was loading or after it was cached. Readers take a stamp before loading and keep it with the value;
+ * the value stays valid while the key has not been invalidated after that stamp.
+ * Keys are spread over a fixed number of stripes, so memory does not grow with the number of keys. Keys sharing a
+ * stripe also share invalidations, which only costs an extra load.
+ */
+public class InvalidationStamps {
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong allInvalidatedAt = new AtomicLong();
+    private final AtomicLongArray invalidatedAt;
+
+    /**
+     * Constructs InvalidationStamps with no key invalidated yet.
+     *
+     * @param stripes Number of stripes, at least 1
+     */
+    public InvalidationStamps(int stripes) {
+        this.invalidatedAt = new AtomicLongArray(stripes);
+    }
+
+    /**
+     * Returns the current stamp, to be taken before loading a value.
+     *
+     * @return Current stamp
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * Marks a key as invalidated now. Values loaded for the key under an earlier stamp are no longer valid.
+     *
+     * @param key Key to invalidate
+     */
+    public void invalidate(int key) {
+        long now = clock.incrementAndGet();
+        invalidatedAt.accumulateAndGet(stripe(key), now, Math::max);
+    }
+
+    /**
+     * Marks every key as invalidated now.
+     */
+    public void invalidateAll() {
+        long now = clock.incrementAndGet();
+        allInvalidatedAt.accumulateAndGet(now, Math::max);
+    }
+
+    /**
+     * Checks whether a key was not invalidated after a stamp.
+     *
+     * @param key   Key to check
+     * @param stamp Stamp taken before the value of the key was loaded
+     * @return true -> value is still valid, false -> key was invalidated since
+     */
+    public boolean isValid(int key, long stamp) {
+        return invalidatedAt.get(stripe(key)) <= stamp && allInvalidatedAt.get() <= stamp;
+    }
+
+    /**
+     * Returns the stripe of a key.
+     *
+     * @param key Key
+     * @return Stripe index
+     */
+    private int stripe(int key) {
+        int hash = key * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), invalidatedAt.length());
+    }
+}
@@ -0,0 +1,47 @@
+package Util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class PageTokenUtil {
+    /**
+     * Encodes the last ID number of a page into an opaque continuation token, bound to the listing it came from.
+     *
+     * @param listing Name of the paginated listing, e.g. "companies"
+     * @param lastId  ID number of the last record of the page
+     * @return URL-safe continuation token
+     */
+    public static String encode(String listing, int lastId) {
+        String raw = listing + ":" + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a continuation token back into the ID number after which the next page starts.
+     * A null token stands for the first page.
+     *
+     * @param listing Name of the paginated listing the token is expected to belong to
+     * @param token   Continuation token received from a previous page, or null
+     * @return ID number to read after, 0 for the first page
+     * @throws IllegalArgumentException Thrown if the token is malformed or belongs to another listing
+     */
+    public static int decode(String listing, String token) {
+        if (token == null) {
+            return 0;
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        String prefix = listing + ":";
+        if (!raw.startsWith(prefix)) {
+            throw new IllegalArgumentException("Page token does not belong to listing: " + listing);
+        }
+        try {
+            int lastId = Integer.parseInt(raw.substring(prefix.length()));
+            if (lastId < 0) {
+                throw new IllegalArgumentException("Negative ID in page token");
+            }
+            return lastId;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed page token", e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package Util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Non-negative counter split over several stripes, so threads decrementing it concurrently mostly update different
+ * cache lines instead of contending on one value. Each thread starts at its own stripe and moves on to the next stripes
+ * only when its stripe is empty, so the counter never goes below zero.
+ */
+public class StripedCounter {
+    private static final int CELL_SPACING = 8;
+    private final AtomicLongArray cells;
+    private final int stripes;
+
+    /**
+     * Constructs a StripedCounter holding the initial value spread evenly over the stripes.
+     *
+     * @param initial Initial value, not negative
+     * @param stripes Number of stripes, at least 1
+     */
+    public StripedCounter(long initial, int stripes) {
+        this.stripes = stripes;
+        this.cells = new AtomicLongArray(stripes * CELL_SPACING);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            cells.set(stripe * CELL_SPACING, initial / stripes + (stripe < initial % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes one unit from the counter if any is left.
+     *
+     * @return true -> a unit was taken, false -> the counter is zero
+     */
+    public boolean tryDecrement() {
+        int start = probe();
+        for (int offset = 0; offset < stripes; offset++) {
+            int cell = ((start + offset) % stripes) * CELL_SPACING;
+            long value;
+            while ((value = cells.get(cell)) > 0) {
+                if (cells.compareAndSet(cell, value, value - 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives one unit back to the counter, e.g. after a reserved unit could not be used.
+     */
+    public void increment() {
+        cells.getAndIncrement(probe() * CELL_SPACING);
+    }
+
+    /**
+     * Returns the current value of the counter. Not an atomic snapshot while other threads are updating it.
+     *
+     * @return Sum of all stripes
+     */
+    public long sum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            sum += cells.get(stripe * CELL_SPACING);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the stripe the calling thread starts at.
+     *
+     * @return Stripe index
+     */
+    private int probe() {
+        return (int) (Thread.currentThread().getId() % stripes);
+    }
+}
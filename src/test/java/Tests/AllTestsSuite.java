@@ -1,6 +1,7 @@
 package Tests;
 
 
+import Tests.DBTests.ConnectionRouterTest;
 import Tests.FacadeTests.AdminFacadeTest;
 import Tests.FacadeTests.CompanyFacadeTest;
 import Tests.FacadeTests.CustomerFacadeTest;
@@ -9,7 +10,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
-        AdminFacadeTest.class, CompanyFacadeTest.class, CustomerFacadeTest.class
+        AdminFacadeTest.class, CompanyFacadeTest.class, CustomerFacadeTest.class, ConnectionRouterTest.class
 })
 public class AllTestsSuite {
 
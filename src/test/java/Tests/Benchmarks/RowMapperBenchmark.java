@@ -0,0 +1,152 @@
+package Tests.Benchmarks;
+
+import Beans.Category;
+import Beans.Coupon;
+import DB.ObjectExtractionUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the name-based Coupon mapping that ObjectExtractionUtil used before with its current
+ * index-based mapping. Rows come from an in-memory ResultSet that finds columns by name the way MySQL Connector/J does,
+ * with a case-insensitive lookup per call. Run the main method after test-compile; it reports the average nanoseconds
+ * per mapped row of each mapper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final String[] COUPON_COLUMNS = {"coupon_id", "company_id", "amount", "price", "category", "title",
+            "description", "image", "start_date", "end_date"};
+    private ResultSet result;
+
+    /**
+     * Runs the benchmark and prints the results.
+     *
+     * @param args Not used
+     * @throws RunnerException Thrown if the benchmark failed to run
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(RowMapperBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Builds the ResultSet mapped by every invocation.
+     */
+    @Setup
+    public void setUp() {
+        result = couponResultSet();
+    }
+
+    /**
+     * Maps one row by column name.
+     *
+     * @return Mapped Coupon, consumed by JMH
+     * @throws SQLException Thrown if mapping failed
+     */
+    @Benchmark
+    public Coupon byName() throws SQLException {
+        return resultSetToCouponByName(result);
+    }
+
+    /**
+     * Maps one row by column index, as ObjectExtractionUtil does now.
+     *
+     * @return Mapped Coupon, consumed by JMH
+     * @throws SQLException Thrown if mapping failed
+     */
+    @Benchmark
+    public Coupon byIndex() throws SQLException {
+        return ObjectExtractionUtil.resultSetToCoupon(result);
+    }
+
+    /**
+     * The name-based Coupon mapping ObjectExtractionUtil used before, kept as the baseline.
+     *
+     * @param result ResultSet from MySQL
+     * @return new Coupon
+     * @throws SQLException Thrown if failed to get parameters
+     */
+    private static Coupon resultSetToCouponByName(ResultSet result) throws SQLException {
+        return new Coupon(
+                result.getInt("coupon_id"),
+                result.getInt("company_id"),
+                result.getInt("amount"),
+                result.getDouble("price"),
+                Category.valueOf(result.getString("category")),
+                result.getString("title"),
+                result.getString("description"),
+                result.getString("image"),
+                result.getDate("start_date"),
+                result.getDate("end_date")
+        );
+    }
+
+    /**
+     * Builds a ResultSet always positioned on one coupons row, supporting only the getters the mappers use.
+     *
+     * @return In-memory ResultSet
+     */
+    private static ResultSet couponResultSet() {
+        Object[] values = {7, 1, 20, 49.99, Category.SOFTWARE.name(), "Macrohard Doors OS Coupon",
+                "0.01% off on new Macrohard OS!", "doors-os-logo.jpg", Date.valueOf(LocalDate.now()),
+                Date.valueOf(LocalDate.now().plusDays(13))};
+        Map<String, Integer> indices = new HashMap<>();
+        for (int counter = 0; counter < COUPON_COLUMNS.length; counter++) {
+            indices.put(COUPON_COLUMNS[counter], counter + 1);
+        }
+        ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(RowMapperBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSetMetaData.class}, (proxy, method, arguments) -> {
+                    switch (method.getName()) {
+                        case "getColumnCount":
+                            return COUPON_COLUMNS.length;
+                        case "getColumnLabel":
+                            return COUPON_COLUMNS[(Integer) arguments[0] - 1];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        return (ResultSet) Proxy.newProxyInstance(RowMapperBenchmark.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, arguments) -> {
+                    if (method.getName().equals("getMetaData")) {
+                        return metaData;
+                    }
+                    if (method.getName().equals("wasNull")) {
+                        return false;
+                    }
+                    int column = arguments[0] instanceof String
+                            ? indices.get(((String) arguments[0]).toLowerCase(Locale.ROOT))
+                            : (Integer) arguments[0];
+                    return values[column - 1];
+                });
+    }
+}
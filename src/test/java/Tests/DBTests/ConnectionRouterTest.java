@@ -0,0 +1,71 @@
+package Tests.DBTests;
+
+import DB.ConnectionPool;
+import DB.ConnectionRouter;
+import DB.DBManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class ConnectionRouterTest {
+    private static final long WINDOW_MILLIS = 200;
+    private ConnectionPool primary;
+    private ConnectionPool replica;
+    private ConnectionRouter router;
+
+    @Before
+    public void initiation() throws SQLException {
+        // The local server stands in for a replica, so reads can be told apart by pool:
+        primary = ConnectionPool.getInstance();
+        replica = new ConnectionPool(DBManager.SQL_URL);
+        router = new ConnectionRouter(primary, List.of(replica), WINDOW_MILLIS);
+    }
+
+    @After
+    public void finish() throws InterruptedException {
+        replica.closeAllConnections();
+    }
+
+    @Test
+    public void readYourWritesWindowTest() throws Exception {
+        assertSame(replica, router.forRead());
+        assertSame(primary, router.forWrite());
+        assertSame(primary, router.forRead());
+        Thread.sleep(WINDOW_MILLIS + 50);
+        assertSame(replica, router.forRead());
+    }
+
+    @Test
+    public void readYourWritesWindowIsPerThreadTest() throws Exception {
+        router.forWrite();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(replica, reader.submit(router::forRead).get());
+        } finally {
+            reader.shutdown();
+        }
+        assertSame(primary, router.forRead());
+    }
+
+    @Test
+    public void capturedReadRouteKeepsWindowTest() throws Exception {
+        router.forWrite();
+        Supplier<ConnectionPool> readRoute = router.captureReadRoute();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(primary, reader.submit(readRoute::get).get());
+        } finally {
+            reader.shutdown();
+        }
+        Thread.sleep(WINDOW_MILLIS + 50);
+        assertSame(replica, router.captureReadRoute().get());
+    }
+}
@@ -2,11 +2,15 @@ package Tests.FacadeTests;
 
 import Beans.Company;
 import Beans.Customer;
+import Beans.Page;
 import Util.TablePrinterUtil;
+import DB.Binding;
 import DB.DatabaseInitializer;
 import DB.DBManager;
 import DB.DBTools;
+import DB.SchemaMigrator;
 import DBDAO.CustomerDBDAO;
+import DBDAO.ExistenceFilter;
 import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
 import Facades.AdminFacade;
@@ -19,6 +23,7 @@ import org.junit.Test;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.*;
 
@@ -83,6 +88,56 @@ public class AdminFacadeTest {
         companyAssertion.accept(newCompany);
     }
 
+    @Test
+    public void createTablesAgainKeepsDataTest() throws Exception {
+        Company company = new Company("Itzik hooBanav", "itzB@itzmail.com", "19itzbanav_50");
+        adminFacade.addCompany(company);
+        DatabaseInitializer.createTables();
+        assertEquals(SchemaMigrator.latestVersion(),
+                DBTools.runQueryForInt(DBManager.COUNT_SCHEMA_VERSIONS, Binding.NONE));
+        assertEquals(1, adminFacade.readAllCompanies().size());
+    }
+
+    @Test
+    public void createTablesResumesHalfAppliedMigrationTest() throws Exception {
+        // V4 as if it failed after indexing companies: its version is not recorded and the later indexes are missing.
+        DBTools.runQuery("DELETE FROM `coupon_project`.`schema_version` WHERE version = 4");
+        DBTools.runQuery("ALTER TABLE `coupon_project`.`customers` DROP INDEX `customers_email_idx`");
+        DatabaseInitializer.createTables();
+        assertEquals(SchemaMigrator.latestVersion(),
+                DBTools.runQueryForInt(DBManager.COUNT_SCHEMA_VERSIONS, Binding.NONE));
+        assertEquals(1, DBTools.runQueryForInt(DBManager.COUNT_CUSTOMERS_LOOKUP_INDEXES, Binding.NONE));
+    }
+
+    @Test
+    public void addCompaniesTest() throws Exception {
+        Company company1 = new Company("Motti Hovalot", "Motti@Mmail.com", "abc123");
+        Company company2 = new Company("Itzik hooBanav", "itzB@itzmail.com", "19itzbanav_50");
+        adminFacade.addCompanies(List.of(company1, company2));
+        List<Company> newCompanyList = adminFacade.readAllCompanies();
+        assertEquals(2, newCompanyList.size());
+        newCompanyList.forEach(company -> companyAssertion.accept(company));
+    }
+
+    @Test
+    public void addCompaniesExistingEmailTest() throws Exception {
+        Company company1 = new Company("Motti Hovalot", "Motti@Mmail.com", "abc123");
+        Company company2 = new Company("Motti Hovalot 2", "Motti@Mmail.com", "abc1234");
+        adminFacade.addCompany(company1);
+        assertThrows(EntityAlreadyExistException.class, () -> adminFacade.addCompanies(List.of(company2)));
+        assertEquals(1, adminFacade.readAllCompanies().size());
+    }
+
+    @Test
+    public void addCompanySkipsExistenceQueryTest() throws Exception {
+        long savedBefore = ExistenceFilter.getInstance().getSavedQueryCount();
+        adminFacade.addCompany(new Company("Motti Hovalot", "Motti@Mmail.com", "abc123"));
+        assertEquals(savedBefore + 1, ExistenceFilter.getInstance().getSavedQueryCount());
+        assertThrows(EntityAlreadyExistException.class,
+                () -> adminFacade.addCompany(new Company("Motti Hovalot 2", "MOTTI@mmail.com", "abc1234")));
+        assertEquals(1, adminFacade.readAllCompanies().size());
+    }
+
     @Test
     public void updateCompanyTest() throws Exception {
         String password = "12345678";
@@ -133,6 +188,23 @@ public class AdminFacadeTest {
         customerAssertion.accept(newCustomer);
     }
 
+    @Test
+    public void addCustomersTest() throws Exception {
+        Customer customer1 = new Customer("Jeffery", "Jefferson", "jeffjeff@gmail.com", "nosreffej4891");
+        Customer customer2 = new Customer("Jennifer", "Jefferson", "jennjeff@gmail.com", "nosreffej6891");
+        adminFacade.addCustomers(List.of(customer1, customer2));
+        List<Customer> newCustomerList = adminFacade.readAllCustomers();
+        assertEquals(2, newCustomerList.size());
+        newCustomerList.forEach(customer -> customerAssertion.accept(customer));
+    }
+
+    @Test(expected = EntityAlreadyExistException.class)
+    public void addCustomersDuplicateEmailTest() throws Exception {
+        Customer customer1 = new Customer("Jeffery", "Jefferson", "jeffjeff@gmail.com", "nosreffej4891");
+        Customer customer2 = new Customer("Jeff", "Jefferson", "jeffjeff@gmail.com", "nosreffej6891");
+        adminFacade.addCustomers(List.of(customer1, customer2));
+    }
+
     @Test
     public void updateCustomerTest() throws Exception {
         String password = "nosreffej6891";
@@ -166,6 +238,43 @@ public class AdminFacadeTest {
         newCustomerList.forEach(customer -> customerAssertion.accept(customer));
     }
 
+    @Test
+    public void streamAllCustomersTest() throws Exception {
+        Customer customer1 = new Customer("Jeffery", "Jefferson", "jeffjeff@gmail.com", "nosreffej4891");
+        Customer customer2 = new Customer("Jennifer", "Jefferson", "jennjeff@gmail.com", "nosreffej6891");
+        Customer customer3 = new Customer("Fred", "Friedman", "freddytheman@gmail.com", "19fredderf89");
+        adminFacade.addCustomers(List.of(customer1, customer2, customer3));
+        try (Stream<Customer> customers = adminFacade.streamAllCustomers()) {
+            customers.forEach(customer -> customerAssertion.accept(customer));
+        }
+        assertEquals(4, idCounter);
+    }
+
+    @Test
+    public void readCustomersPageTest() throws Exception {
+        Customer customer1 = new Customer("Jeffery", "Jefferson", "jeffjeff@gmail.com", "nosreffej4891");
+        Customer customer2 = new Customer("Jennifer", "Jefferson", "jennjeff@gmail.com", "nosreffej6891");
+        Customer customer3 = new Customer("Fred", "Friedman", "freddytheman@gmail.com", "19fredderf89");
+        adminFacade.addCustomers(List.of(customer1, customer2, customer3));
+        Page<Customer> page = adminFacade.readCustomersPage(null, 2);
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.hasNext());
+        page.getItems().forEach(customer -> customerAssertion.accept(customer));
+        page = adminFacade.readCustomersPage(page.getNextToken(), 2);
+        assertEquals(1, page.getItems().size());
+        assertFalse(page.hasNext());
+        page.getItems().forEach(customer -> customerAssertion.accept(customer));
+    }
+
+    @Test(expected = EntityCrudException.class)
+    public void readCompaniesPageInvalidTokenTest() throws Exception {
+        Customer customer1 = new Customer("Jeffery", "Jefferson", "jeffjeff@gmail.com", "nosreffej4891");
+        Customer customer2 = new Customer("Jennifer", "Jefferson", "jennjeff@gmail.com", "nosreffej6891");
+        adminFacade.addCustomers(List.of(customer1, customer2));
+        Page<Customer> page = adminFacade.readCustomersPage(null, 1);
+        adminFacade.readCompaniesPage(page.getNextToken(), 1);
+    }
+
     @Test
     public void printAllCustomersTest() throws Exception {
         Customer customer1 = new Customer("Jeffery", "Jefferson", "jeffjeff@gmail.com", "nosreffej4891");
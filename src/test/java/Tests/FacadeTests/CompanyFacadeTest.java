@@ -3,16 +3,21 @@ package Tests.FacadeTests;
 import Beans.Category;
 import Beans.Company;
 import Beans.Coupon;
+import Beans.LazyList;
 import Util.TablePrinterUtil;
 import DB.DatabaseInitializer;
 import DB.DBManager;
 import DB.DBTools;
+import DBDAO.CachedCouponDAO;
+import DBDAO.CompanyDBDAO;
+import DBDAO.FetchMode;
 import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
 import Facades.AdminFacade;
 import Facades.CompanyFacade;
 import LoginManager.ClientType;
 import LoginManager.LoginManager;
+import Thread.CouponExpirationDailyJob;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -155,6 +160,20 @@ public class CompanyFacadeTest {
         couponAssertion.accept(macrohardCoupons[1]);
     }
 
+    @Test
+    public void addCouponsTest() throws Exception {
+        companyFacade[companyIdCounter - 1].addCoupons(List.of(macrohardCoupons[0], macrohardCoupons[2]));
+        List<Coupon> newCouponList = companyFacade[companyIdCounter - 1].readAllCompanyCoupons();
+        assertEquals(2, newCouponList.size());
+        newCouponList.forEach(coupon -> couponAssertion.accept(coupon));
+    }
+
+    @Test(expected = EntityAlreadyExistException.class)
+    public void addCouponsExistingTitleTest() throws Exception {
+        companyFacade[companyIdCounter - 1].addCoupon(macrohardCoupons[0]);
+        companyFacade[companyIdCounter - 1].addCoupons(List.of(macrohardCoupons[2], macrohardCoupons[0]));
+    }
+
     @Test
     public void updateCouponTest() throws Exception {
         companyFacade[companyIdCounter - 1].addCoupon(macrohardCoupons[2]);
@@ -166,6 +185,20 @@ public class CompanyFacadeTest {
         couponAssertion.accept(macrohardCoupons[2]);
     }
 
+    @Test
+    public void readCouponByIdCachedTest() throws Exception {
+        companyFacade[companyIdCounter - 1].addCoupon(macrohardCoupons[2]);
+        Coupon first = companyFacade[companyIdCounter - 1].readCouponById(couponIdCounter);
+        long hitsBefore = CachedCouponDAO.getInstance().getHitCount();
+        first.setPrice(1.99);
+        Coupon second = companyFacade[companyIdCounter - 1].readCouponById(couponIdCounter);
+        assertEquals(hitsBefore + 1, CachedCouponDAO.getInstance().getHitCount());
+        assertEquals(macrohardCoupons[2].getPrice(), second.getPrice(), 0);
+        second.setPrice(99.99);
+        companyFacade[companyIdCounter - 1].updateCoupon(second);
+        assertEquals(99.99, companyFacade[companyIdCounter - 1].readCouponById(couponIdCounter).getPrice(), 0);
+    }
+
     @Test
     public void deleteCouponTest() throws Exception {
         companyFacade[companyIdCounter - 1].addCoupon(macrohardCoupons[2]);
@@ -195,6 +228,18 @@ public class CompanyFacadeTest {
         newCouponList.forEach(coupon -> couponAssertion.accept(coupon));
     }
 
+    @Test
+    public void readAllCompanyCouponsAfterChangesTest() throws Exception {
+        companyFacade[0].addCoupon(macrohardCoupons[0]);
+        assertEquals(1, companyFacade[0].readAllCompanyCoupons().size());
+        companyFacade[0].addCoupon(macrohardCoupons[2]);
+        assertEquals(2, companyFacade[0].readAllCompanyCoupons().size());
+        assertEquals(1, companyFacade[0].readCompanyCoupons(Category.SOFTWARE).size());
+        companyFacade[0].deleteCoupon(couponIdCounter);
+        assertEquals(1, companyFacade[0].readAllCompanyCoupons().size());
+        assertEquals(1, companyFacade[0].getCompanyDetails().getCoupons().size());
+    }
+
     @Test
     public void printAllCompanyCouponsTest() throws Exception {
         companyFacade[0].addCoupon(macrohardCoupons[0]);
@@ -247,6 +292,48 @@ public class CompanyFacadeTest {
         assertEquals(expected.getEmail(), actual.getEmail());
     }
 
+    @Test
+    public void getCompanyDetailsLazyCouponsTest() throws Exception {
+        companyFacade[0].addCoupon(macrohardCoupons[0]);
+        companyFacade[0].addCoupon(macrohardCoupons[2]);
+        Company lazy = companyFacade[0].getCompanyDetails();
+        assertFalse(((LazyList<Coupon>) lazy.getCoupons()).isLoaded());
+        assertEquals(2, lazy.getCoupons().size());
+        assertTrue(((LazyList<Coupon>) lazy.getCoupons()).isLoaded());
+        Company eager = CompanyDBDAO.getInstance().readCompany(1, FetchMode.EAGER);
+        assertFalse(eager.getCoupons() instanceof LazyList);
+        assertEquals(2, eager.getCoupons().size());
+    }
+
+    @Test
+    public void purgeExpiredCouponsTest() throws Exception {
+        companyFacade[0].addCoupon(macrohardCoupons[0]);
+        macrohardCoupons[2].setStartDate(Date.valueOf(LocalDate.now().minusDays(10)));
+        macrohardCoupons[2].setEndDate(Date.valueOf(LocalDate.now().minusDays(1)));
+        companyFacade[0].addCoupon(macrohardCoupons[2]);
+        companyFacade[0].readCouponById(2);
+        CouponExpirationDailyJob job = new CouponExpirationDailyJob();
+        assertEquals(1, job.purgeExpiredCoupons());
+        assertEquals(1, job.getLastChunkCount());
+        job.stopTask();
+        assertFalse(TestDBMethods.isCouponExistById(2));
+        assertThrows(EntityCrudException.class, () -> companyFacade[0].readCouponById(2));
+        assertEquals(1, companyFacade[0].readAllCompanyCoupons().size());
+    }
+
+    @Test
+    public void readAllCompaniesWithCouponsTest() throws Exception {
+        companyFacade[0].addCoupon(macrohardCoupons[0]);
+        companyFacade[0].addCoupon(macrohardCoupons[2]);
+        List<Company> companies = adminFacade.readAllCompaniesWithCoupons();
+        assertEquals(2, companies.size());
+        assertEquals(1, companies.get(0).getId());
+        assertEquals(2, companies.get(0).getCoupons().size());
+        assertEquals(macrohardCoupons[0].getTitle(), companies.get(0).getCoupons().get(0).getTitle());
+        assertEquals(2, companies.get(1).getId());
+        assertTrue(companies.get(1).getCoupons().isEmpty());
+    }
+
     @Test
     public void printCompanyDetailsTest() throws Exception {
         companyFacade[0].addCoupon(macrohardCoupons[0]);
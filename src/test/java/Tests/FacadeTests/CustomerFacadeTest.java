@@ -4,18 +4,25 @@ import Beans.Category;
 import Beans.Company;
 import Beans.Coupon;
 import Beans.Customer;
+import Beans.Page;
 import Util.TablePrinterUtil;
 import DB.DatabaseInitializer;
 import DB.DBManager;
 import DB.DBTools;
+import DBDAO.CachedCouponDAO;
 import DBDAO.CouponDBDAO;
+import DBDAO.HotCouponInventory;
+import DBDAO.PurchaseIndex;
+import DBDAO.PurchaseWriteBatcher;
 import Exceptions.EntityAlreadyExistException;
 import Exceptions.EntityCrudException;
+import Exceptions.NoCouponsLeftException;
 import Facades.AdminFacade;
 import Facades.CompanyFacade;
 import Facades.CustomerFacade;
 import LoginManager.ClientType;
 import LoginManager.LoginManager;
+import LoginManager.Session;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -26,6 +33,10 @@ import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -243,6 +254,117 @@ public class CustomerFacadeTest {
         couponAssertion.accept(expected, actual);
     }
 
+    @Test
+    public void purchaseCouponTwiceTest() throws Exception {
+        Coupon coupon = customerFacade[0].readCouponById(1);
+        customerFacade[0].purchaseCoupon(coupon);
+        assertThrows(EntityAlreadyExistException.class, () -> customerFacade[0].purchaseCoupon(coupon));
+        assertEquals(1, customerFacade[0].readCouponById(1).getAmount());
+    }
+
+    @Test
+    public void isCouponPurchasedTest() throws Exception {
+        assertFalse(customerFacade[0].isCouponPurchased(1));
+        customerFacade[0].purchaseCoupon(customerFacade[0].readCouponById(1));
+        assertTrue(customerFacade[0].isCouponPurchased(1));
+        assertFalse(customerFacade[1].isCouponPurchased(1));
+        assertTrue(PurchaseIndex.getInstance().getMemoryUsageBytesPerMillionPurchases() > 0);
+        companyFacade[0].deleteCoupon(1);
+        assertFalse(customerFacade[0].isCouponPurchased(1));
+    }
+
+    @Test
+    public void readCouponsByIdsTest() throws Exception {
+        customerFacade[0].readCouponById(1);
+        long hitsBefore = CachedCouponDAO.getInstance().getHitCount();
+        Map<Integer, Coupon> coupons = customerFacade[0].readCouponsByIds(List.of(1, 2, 3, 2, 99));
+        assertEquals(hitsBefore + 1, CachedCouponDAO.getInstance().getHitCount());
+        assertEquals(3, coupons.size());
+        assertFalse(coupons.containsKey(99));
+        couponAssertion.accept(expectedMacrohardCoupons[1], coupons.get(2));
+        couponAssertion.accept(expectedBananaCoupons[0], coupons.get(3));
+        Map<Integer, Customer> customers = adminFacade.readCustomers(List.of(4, 1));
+        assertEquals(2, customers.size());
+        customerAssertion.accept(expctedChristine, customers.get(4));
+    }
+
+    @Test
+    public void readAllCustomersWithCouponsTest() throws Exception {
+        customerFacade[0].purchaseCoupon(customerFacade[0].readCouponById(1));
+        customerFacade[0].purchaseCoupon(customerFacade[0].readCouponById(3));
+        customerFacade[1].purchaseCoupon(customerFacade[1].readCouponById(1));
+        List<Customer> customers = adminFacade.readAllCustomersWithCoupons();
+        assertEquals(4, customers.size());
+        assertEquals(2, customers.get(0).getCoupons().size());
+        assertEquals(1, customers.get(1).getCoupons().size());
+        assertTrue(customers.get(2).getCoupons().isEmpty());
+        assertSame(customers.get(0).getCoupons().get(0), customers.get(1).getCoupons().get(0));
+        Page<Customer> page = adminFacade.readCustomersWithCouponsPage(null, 1);
+        assertEquals(2, page.getItems().get(0).getCoupons().size());
+        page = adminFacade.readCustomersWithCouponsPage(page.getNextToken(), 3);
+        assertEquals(3, page.getItems().size());
+        assertEquals(1, page.getItems().get(0).getCoupons().size());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void purchaseCouponConcurrentlyTest() throws Exception {
+        assertEquals(2, buyConcurrently(1));
+        assertEquals(0, customerFacade[0].readCouponById(1).getAmount());
+    }
+
+    @Test
+    public void purchaseHotCouponConcurrentlyTest() throws Exception {
+        adminFacade.designateHotCoupon(1);
+        try {
+            assertEquals(2, buyConcurrently(1));
+            assertEquals(0, HotCouponInventory.getInstance().getRemaining(1));
+        } finally {
+            adminFacade.releaseHotCoupon(1);
+        }
+        assertEquals(0, customerFacade[0].readCouponById(1).getAmount());
+    }
+
+    @Test
+    public void hotCouponStockSurvivesCustomerDeleteTest() throws Exception {
+        adminFacade.designateHotCoupon(1);
+        try {
+            assertEquals(2, buyConcurrently(1));
+            for (int customerId = 1; customerId <= customerFacade.length; customerId++) {
+                if (CouponDBDAO.getInstance().isPurchaseExistByIds(1, customerId)) {
+                    adminFacade.deleteCustomer(customerId);
+                }
+            }
+            HotCouponInventory.getInstance().recover();
+            assertEquals(0, HotCouponInventory.getInstance().getRemaining(1));
+        } finally {
+            adminFacade.releaseHotCoupon(1);
+        }
+        assertEquals(0, CouponDBDAO.getInstance().readCoupon(1).getAmount());
+    }
+
+    @Test
+    public void purchaseCouponGroupCommitTest() throws Exception {
+        // Purchase records wait long enough to share one insert, and a rejected record gives its unit back:
+        PurchaseWriteBatcher.getInstance().setMaxLatencyMillis(200);
+        try {
+            assertEquals(2, buyConcurrently(1));
+            int recorded = 0;
+            for (int customerId = 1; customerId <= customerFacade.length; customerId++) {
+                recorded += CouponDBDAO.getInstance().isPurchaseExistByIds(1, customerId) ? 1 : 0;
+            }
+            assertEquals(2, recorded);
+            Coupon coupon = customerFacade[0].readCouponById(2);
+            customerFacade[0].purchaseCoupon(coupon);
+            int amount = customerFacade[0].readCouponById(2).getAmount();
+            PurchaseIndex.getInstance().clear();
+            assertThrows(EntityAlreadyExistException.class, () -> customerFacade[0].purchaseCoupon(coupon));
+            assertEquals(amount, customerFacade[0].readCouponById(2).getAmount());
+        } finally {
+            PurchaseWriteBatcher.getInstance().setMaxLatencyMillis(DBManager.PURCHASE_BATCH_MAX_LATENCY_MILLIS);
+        }
+    }
+
     @Test
     public void deleteCouponPurchaseByDeleteCouponCascadeTest() throws Exception {
         Coupon coupon = customerFacade[0].readCouponById(1);
@@ -341,6 +463,30 @@ public class CustomerFacadeTest {
         TablePrinterUtil.print(customer1Coupons);
     }
 
+    @Test
+    public void resumeSessionTest() throws Exception {
+        Session session = LoginManager.getInstance().openSession("jeffyjeff@gmail.com", "12345678", ClientType.CUSTOMER);
+        assertEquals(1, session.getPrincipalId());
+        CustomerFacade resumed = (CustomerFacade) LoginManager.getInstance().resume(session.getToken());
+        assertSame(session.getFacade(), resumed);
+        customerAssertion.accept(customerFacade[0].getCustomerDetails(), resumed.getCustomerDetails());
+        LoginManager.getInstance().logout(session.getToken());
+        assertNull(LoginManager.getInstance().resume(session.getToken()));
+    }
+
+    @Test
+    public void invalidateSessionsByPrincipalTest() throws Exception {
+        Session jeffSession = LoginManager.getInstance().openSession("jeffyjeff@gmail.com", "12345678", ClientType.CUSTOMER);
+        Session jennySession = LoginManager.getInstance().openSession("jenny@gmail.com", "abc123", ClientType.CUSTOMER);
+        Customer customer = adminFacade.readCustomer(1);
+        customer.setPassword("87654321");
+        adminFacade.updateCustomer(customer);
+        assertNull(LoginManager.getInstance().resume(jeffSession.getToken()));
+        assertNotNull(LoginManager.getInstance().resume(jennySession.getToken()));
+        adminFacade.deleteCustomer(2);
+        assertNull(LoginManager.getInstance().resume(jennySession.getToken()));
+    }
+
     @Test
     public void getCustomerDetailsTest() throws Exception {
         Customer actual = customerFacade[3].getCustomerDetails();
@@ -355,4 +501,35 @@ public class CustomerFacadeTest {
         Customer customer = customerFacade[3].getCustomerDetails();
         TablePrinterUtil.print(customer);
     }
+
+    /**
+     * Lets every customer buy the same Coupon at the same time, each on its own thread.
+     *
+     * @param couponId Coupon ID number
+     * @return Number of customers whose purchase went through; the others found no coupons left
+     * @throws Exception Thrown if a purchase failed for any other reason
+     */
+    private int buyConcurrently(int couponId) throws Exception {
+        ExecutorService buyers = Executors.newFixedThreadPool(customerFacade.length);
+        try {
+            List<Future<Boolean>> purchases = new ArrayList<>();
+            for (CustomerFacade facade : customerFacade) {
+                purchases.add(buyers.submit(() -> {
+                    try {
+                        facade.purchaseCoupon(facade.readCouponById(couponId));
+                        return true;
+                    } catch (NoCouponsLeftException e) {
+                        return false;
+                    }
+                }));
+            }
+            int purchased = 0;
+            for (Future<Boolean> purchase : purchases) {
+                purchased += purchase.get() ? 1 : 0;
+            }
+            return purchased;
+        } finally {
+            buyers.shutdown();
+        }
+    }
 }